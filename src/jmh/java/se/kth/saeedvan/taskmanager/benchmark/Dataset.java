@@ -0,0 +1,87 @@
+package se.kth.saeedvan.taskmanager.benchmark;
+
+import se.kth.saeedvan.taskmanager.model.Project;
+import se.kth.saeedvan.taskmanager.model.TaskPrio;
+import se.kth.saeedvan.taskmanager.model.TaskState;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates projects with tasks for the benchmarks. The same parameters and seed always give the same projects.
+ * <p>
+ * Tasks are done, in progress or to do by the given shares, and high, medium or low priority, with the medium
+ * share as large as the high one. Tasks in progress or done are taken, and half of the tasks to do.
+ * Descriptions are drawn from a small vocabulary where a few words are common and most are rare, like in text.
+ */
+final class Dataset {
+    static final LocalDate START = LocalDate.of(2024, 1, 1);
+
+    private static final String[] WORDS = {
+            "fix", "add", "update", "review", "test", "write", "remove", "deploy", "design", "plan",
+            "report", "bug", "login", "page", "database", "server", "client", "api", "docs", "release",
+            "meeting", "budget", "customer", "invoice", "backup", "search", "index", "cache", "layout", "email",
+            "schedule", "migration", "security", "password", "upload", "export", "import", "chart", "mobile", "build"
+    };
+
+    private Dataset() {
+    }
+
+    /**
+     * @param projectCount the number of projects
+     * @param tasksPerProject the number of tasks in each project
+     * @param doneShare the share of tasks that are done
+     * @param inProgressShare the share of tasks that are in progress
+     * @param highShare the share of tasks with high priority
+     * @param users the number of users taking tasks
+     * @param seed the seed of the random numbers
+     * @return the projects, with ids from 1
+     */
+    static List<Project> generate(int projectCount, int tasksPerProject, double doneShare, double inProgressShare,
+                                  double highShare, int users, long seed) {
+        Random random = new Random(seed);
+        List<Project> projects = new ArrayList<>(projectCount);
+        for (int p = 1; p <= projectCount; p++) {
+            Project project = Project.restore(title(p), "Generated project " + p, p, START, tasksPerProject + 1);
+            for (int id = 1; id <= tasksPerProject; id++) {
+                double r = random.nextDouble();
+                TaskState state = r < doneShare ? TaskState.DONE
+                        : r < doneShare + inProgressShare ? TaskState.IN_PROGRESS : TaskState.TO_DO;
+                r = random.nextDouble();
+                TaskPrio prio = r < highShare ? TaskPrio.HIGH : r < 2 * highShare ? TaskPrio.MEDIUM : TaskPrio.LOW;
+                String takenBy = state != TaskState.TO_DO || random.nextBoolean() ? user(random.nextInt(users)) : null;
+                project.restoreTask(id, description(random), prio, state, takenBy, START.plusDays(random.nextInt(365)));
+            }
+            projects.add(project);
+        }
+        return projects;
+    }
+
+    static String title(int project) {
+        return "Project " + project + " " + WORDS[project % WORDS.length];
+    }
+
+    static String user(int user) {
+        return "user" + user + "@example.com";
+    }
+
+    /**
+     * @param random the random numbers to draw the word with
+     * @return a word of the descriptions, common words more often
+     */
+    static String word(Random random) {
+        double r = random.nextDouble();
+        return WORDS[(int) (r * r * WORDS.length)];
+    }
+
+    private static String description(Random random) {
+        StringBuilder builder = new StringBuilder(word(random));
+        int words = 3 + random.nextInt(6);
+        for (int i = 1; i < words; i++) {
+            builder.append(' ').append(word(random));
+        }
+        return builder.toString();
+    }
+}
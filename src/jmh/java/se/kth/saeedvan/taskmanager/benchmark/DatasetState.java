@@ -0,0 +1,45 @@
+package se.kth.saeedvan.taskmanager.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import se.kth.saeedvan.taskmanager.model.Project;
+import se.kth.saeedvan.taskmanager.model.TaskStorage;
+
+import java.util.List;
+
+/**
+ * The parameters of the generated projects, shared by the benchmarks. See {@link Dataset}.
+ */
+@State(Scope.Benchmark)
+public abstract class DatasetState {
+    @Param({"10", "100"})
+    public int projectCount;
+
+    @Param({"1000"})
+    public int tasksPerProject;
+
+    @Param({"0.3"})
+    public double doneShare;
+
+    @Param({"0.2"})
+    public double inProgressShare;
+
+    @Param({"0.2"})
+    public double highShare;
+
+    @Param({"50"})
+    public int users;
+
+    @Param({"42"})
+    public long seed;
+
+    // also used for the projects the benchmarks read from file
+    @Param({"OBJECTS", "COLUMNS"})
+    public TaskStorage storage;
+
+    protected List<Project> generate() {
+        Project.setDefaultStorage(storage);
+        return Dataset.generate(projectCount, tasksPerProject, doneShare, inProgressShare, highShare, users, seed);
+    }
+}
@@ -0,0 +1,87 @@
+package se.kth.saeedvan.taskmanager.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import se.kth.saeedvan.taskmanager.model.Project;
+import se.kth.saeedvan.taskmanager.model.ProjectsManager;
+import se.kth.saeedvan.taskmanager.model.Task;
+import se.kth.saeedvan.taskmanager.model.TaskPrio;
+import se.kth.saeedvan.taskmanager.model.matcher.AndMatcher;
+import se.kth.saeedvan.taskmanager.model.matcher.DescriptionMatcher;
+import se.kth.saeedvan.taskmanager.model.matcher.ITaskMatcher;
+import se.kth.saeedvan.taskmanager.model.matcher.NotDoneMatcher;
+import se.kth.saeedvan.taskmanager.model.matcher.NotMatcher;
+import se.kth.saeedvan.taskmanager.model.matcher.OrMatcher;
+import se.kth.saeedvan.taskmanager.model.matcher.PrioMatcher;
+import se.kth.saeedvan.taskmanager.model.matcher.TakenByMatcher;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding tasks with each kind of matcher, in one project and in all projects.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MatcherBenchmark extends DatasetState {
+    @Param({"notDone", "prio", "takenBy", "description", "prefix", "and", "or", "not", "unindexed"})
+    public String matcher;
+
+    private ProjectsManager manager;
+    private Project project;
+    private ITaskMatcher taskMatcher;
+
+    @Setup
+    public void setUp() {
+        manager = new ProjectsManager();
+        manager.setProjects(generate());
+        project = manager.getProjectById(1);
+        taskMatcher = switch (matcher) {
+            case "notDone" -> new NotDoneMatcher();
+            case "prio" -> new PrioMatcher(TaskPrio.HIGH);
+            case "takenBy" -> new TakenByMatcher(Dataset.user(0));
+            case "description" -> new DescriptionMatcher("review bug");
+            case "prefix" -> new DescriptionMatcher("rel*");
+            case "and" -> new AndMatcher(new NotDoneMatcher(), new PrioMatcher(TaskPrio.HIGH), new DescriptionMatcher("fix"));
+            case "or" -> new OrMatcher(new PrioMatcher(TaskPrio.HIGH), new TakenByMatcher(Dataset.user(0)));
+            case "not" -> new NotMatcher(new PrioMatcher(TaskPrio.LOW));
+            // tested against every task, as the index can not answer it
+            case "unindexed" -> task -> task.getDescription().length() > 40;
+            default -> throw new IllegalArgumentException("Unknown matcher " + matcher);
+        };
+    }
+
+    @Benchmark
+    public List<Task> projectFindTasks() {
+        return project.findTasks(taskMatcher);
+    }
+
+    @Benchmark
+    public List<Task> projectFirstPage() {
+        return project.findTasks(taskMatcher, 20);
+    }
+
+    @Benchmark
+    public long projectStreamCount() {
+        return project.streamTasks(taskMatcher).count();
+    }
+
+    @Benchmark
+    public Map<Project, List<Task>> managerFindTasks() {
+        return manager.findTasks(taskMatcher);
+    }
+}
@@ -0,0 +1,92 @@
+package se.kth.saeedvan.taskmanager.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import se.kth.saeedvan.taskmanager.io.ProjectsFileIO;
+import se.kth.saeedvan.taskmanager.model.Project;
+import se.kth.saeedvan.taskmanager.model.ProjectsManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saving and loading projects, and handing loaded projects to the manager.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PersistenceBenchmark extends DatasetState {
+    private List<Project> projects;
+    private ProjectsManager manager;
+    // written once, read by the load benchmarks
+    private File savedFile;
+    // written by the save benchmarks
+    private File scratchFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        projects = generate();
+        manager = new ProjectsManager();
+        savedFile = Files.createTempFile("projects", ".dat").toFile();
+        scratchFile = Files.createTempFile("projects", ".dat").toFile();
+        ProjectsFileIO.saveToFile(savedFile, projects);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(savedFile.toPath());
+        Files.deleteIfExists(scratchFile.toPath());
+    }
+
+    @Benchmark
+    public ProjectsManager setProjects() {
+        manager.setProjects(projects);
+        return manager;
+    }
+
+    @Benchmark
+    public File save() throws IOException {
+        ProjectsFileIO.saveToFile(scratchFile, projects);
+        return scratchFile;
+    }
+
+    @Benchmark
+    public List<Project> load() throws IOException, ClassNotFoundException {
+        return ProjectsFileIO.loadFromFile(savedFile);
+    }
+
+    @Benchmark
+    public List<Project> map() throws IOException, ClassNotFoundException {
+        return ProjectsFileIO.mapFromFile(savedFile);
+    }
+
+    @Benchmark
+    public List<Project> mapAndLoadOne() throws IOException, ClassNotFoundException {
+        List<Project> mapped = ProjectsFileIO.mapFromFile(savedFile);
+        mapped.get(mapped.size() / 2).load();
+        return mapped;
+    }
+
+    @Benchmark
+    public ProjectsManager roundTrip() throws IOException, ClassNotFoundException {
+        ProjectsFileIO.saveToFile(scratchFile, projects);
+        ProjectsManager loaded = new ProjectsManager();
+        loaded.setProjects(ProjectsFileIO.loadFromFile(scratchFile));
+        return loaded;
+    }
+}
@@ -0,0 +1,78 @@
+package se.kth.saeedvan.taskmanager.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import se.kth.saeedvan.taskmanager.model.Project;
+import se.kth.saeedvan.taskmanager.model.ProjectsManager;
+import se.kth.saeedvan.taskmanager.model.Task;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looking up tasks by id and projects by a part of their title.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class QueryBenchmark extends DatasetState {
+    // the lookups are drawn up front and then used in turn
+    private static final int LOOKUPS = 1024;
+
+    private ProjectsManager manager;
+    private Project[] projects;
+    private int[] taskIds;
+    private String[] titleParts;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        manager = new ProjectsManager();
+        manager.setProjects(generate());
+        List<Project> all = manager.getProjects();
+        Random random = new Random(seed);
+        projects = new Project[LOOKUPS];
+        taskIds = new int[LOOKUPS];
+        titleParts = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            projects[i] = all.get(random.nextInt(all.size()));
+            taskIds[i] = 1 + random.nextInt(tasksPerProject);
+            String title = Dataset.title(1 + random.nextInt(projectCount));
+            int start = random.nextInt(title.length() - 3);
+            titleParts[i] = title.substring(start, start + 3 + random.nextInt(title.length() - start - 2));
+        }
+    }
+
+    private int next() {
+        next = (next + 1) & (LOOKUPS - 1);
+        return next;
+    }
+
+    @Benchmark
+    public Task getTaskById() {
+        int i = next();
+        return projects[i].getTaskById(taskIds[i]);
+    }
+
+    @Benchmark
+    public Project getProjectById() {
+        return manager.getProjectById(projects[next()].getId());
+    }
+
+    @Benchmark
+    public List<Project> findProjects() {
+        return manager.findProjects(titleParts[next()]);
+    }
+}
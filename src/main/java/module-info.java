@@ -1,8 +1,14 @@
 module se.kth.saeedvan.taskmanager {
     requires javafx.controls;
     requires javafx.fxml;
+    requires jdk.httpserver;
+    requires java.net.http;
+    requires java.management;
+    requires jdk.jfr;
 
 
     opens se.kth.saeedvan.taskmanager to javafx.fxml;
     exports se.kth.saeedvan.taskmanager;
+    // the MBeans of the metrics are read by JMX through their interfaces, and its events by JFR
+    exports se.kth.saeedvan.taskmanager.metrics;
 }
\ No newline at end of file
@@ -0,0 +1,70 @@
+package se.kth.saeedvan.taskmanager;
+
+import se.kth.saeedvan.taskmanager.load.HttpTarget;
+import se.kth.saeedvan.taskmanager.load.ITarget;
+import se.kth.saeedvan.taskmanager.load.InProcessTarget;
+import se.kth.saeedvan.taskmanager.load.LoadDriver;
+import se.kth.saeedvan.taskmanager.load.LoadReport;
+import se.kth.saeedvan.taskmanager.load.Workload;
+import se.kth.saeedvan.taskmanager.metrics.Metrics;
+import se.kth.saeedvan.taskmanager.model.Project;
+import se.kth.saeedvan.taskmanager.model.ProjectsManager;
+import se.kth.saeedvan.taskmanager.model.TaskStorage;
+
+import java.io.PrintStream;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Runs a synthetic workload on the projects and reports throughput and latency, to size a deployment.
+ * Configured with system properties, for example
+ * {@code -Dload.target=http://localhost:8080 -Dload.rate=2000 -Dload.clients=64}.
+ */
+public class LoadDriverApp {
+
+    // "in-process" for a new ProjectsManager in this process, or the address of a TaskServer
+    private static final String TARGET = System.getProperty("load.target", "in-process");
+    private static final long SEED = Long.getLong("load.seed", 1);
+    private static final int CLIENTS = Integer.getInteger("load.clients", 16);
+    // operations per second of all clients together, 0 for as fast as possible
+    private static final double RATE = Double.parseDouble(System.getProperty("load.rate", "1000"));
+    private static final int WARMUP_SECONDS = Integer.getInteger("load.warmupSeconds", 5);
+    private static final int SECONDS = Integer.getInteger("load.seconds", 30);
+    private static final int PROJECTS = Integer.getInteger("load.projects", 10);
+    private static final int TASKS = Integer.getInteger("load.tasksPerProject", 200);
+    private static final int USERS = Integer.getInteger("load.users", CLIENTS);
+    private static final String MIX = System.getProperty("load.mix", Workload.DEFAULT_MIX);
+    // how the in-process projects keep their tasks, as for ProjectApp
+    private static final String TASK_STORAGE = System.getProperty("taskmanager.taskStorage", "objects");
+    // file to write the latency distribution to, in the format of HdrHistogram
+    private static final String DISTRIBUTION_FILE = System.getProperty("load.distributionFile");
+
+    public void run() throws Exception {
+        Project.setDefaultStorage(TaskStorage.valueOf(TASK_STORAGE.toUpperCase(Locale.ROOT)));
+        Workload workload = new Workload(SEED, PROJECTS, TASKS, USERS, MIX);
+        System.out.println("Running " + MIX + " with seed " + SEED + " from " + CLIENTS + " clients at "
+                + (RATE == 0 ? "full speed" : RATE + " operations per second") + " on " + TARGET);
+        try (ITarget target = TARGET.equals("in-process") ? new InProcessTarget(new ProjectsManager())
+                : new HttpTarget(URI.create(TARGET))) {
+            LoadReport report = new LoadDriver(target, workload, CLIENTS, RATE)
+                    .run(Duration.ofSeconds(WARMUP_SECONDS), Duration.ofSeconds(SECONDS));
+            report.print(System.out);
+            // with -Dtaskmanager.metrics=true, where the time went in the model of an in-process run
+            if (Metrics.isEnabled())
+                Metrics.print(System.out);
+            if (DISTRIBUTION_FILE != null) {
+                try (PrintStream out = new PrintStream(DISTRIBUTION_FILE)) {
+                    report.printDistribution(out);
+                }
+                System.out.println("Latency distribution written to " + DISTRIBUTION_FILE);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+
+        LoadDriverApp app = new LoadDriverApp();
+        app.run();
+    }
+}
@@ -1,48 +1,128 @@
 package se.kth.saeedvan.taskmanager;
 
+import se.kth.saeedvan.taskmanager.io.CorruptProjectsException;
 import se.kth.saeedvan.taskmanager.io.ProjectsFileIO;
+import se.kth.saeedvan.taskmanager.io.ProjectsJournal;
+import se.kth.saeedvan.taskmanager.metrics.Metrics;
 import se.kth.saeedvan.taskmanager.model.Project;
 import se.kth.saeedvan.taskmanager.model.ProjectsManager;
+import se.kth.saeedvan.taskmanager.model.TaskStorage;
+import se.kth.saeedvan.taskmanager.server.TaskServer;
 import se.kth.saeedvan.taskmanager.ui.MainUI;
 
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 public class ProjectApp {
 
-    private static final String FILE_NAME = "projects.ser";
+    private static final String FILE_NAME = "projects.dat";
+    // data file of earlier versions, read if there is no data file yet
+    private static final String LEGACY_FILE_NAME = "projects.ser";
+    // changes made since projects.dat was written
+    private static final String JOURNAL_FILE_NAME = "projects.journal";
+    // copy of a data file with damaged projects, kept since the file is replaced when saving
+    private static final String DAMAGED_FILE_NAME = "projects.dat.damaged";
+    // run with -Dtaskmanager.mapped=true to map projects.dat and only load the projects that are opened
+    private static final boolean MAPPED = Boolean.getBoolean("taskmanager.mapped");
+    // run with -Dtaskmanager.autosaveMillis=... to change how often changes are written into projects.dat
+    private static final long AUTOSAVE_MILLIS = Long.getLong("taskmanager.autosaveMillis",
+            ProjectsJournal.DEFAULT_AUTOSAVE_INTERVAL_MILLIS);
+    // run with -Dtaskmanager.httpPort=... to also serve the projects over HTTP, see TaskServer
+    private static final Integer HTTP_PORT = Integer.getInteger("taskmanager.httpPort");
+    // run with -Dtaskmanager.headless=true to only serve over HTTP, until the process is stopped
+    private static final boolean HEADLESS = Boolean.getBoolean("taskmanager.headless");
+    // run with -Dtaskmanager.taskStorage=columns to keep the tasks in arrays, for projects with very many tasks
+    private static final String TASK_STORAGE = System.getProperty("taskmanager.taskStorage", "objects");
 
     public void run() throws Exception { // we do not catch all exceptions
 
+        // the metrics can be turned on from JMX, or with -Dtaskmanager.metrics=true from the start
+        Metrics.registerMBeans();
+        Project.setDefaultStorage(TaskStorage.valueOf(TASK_STORAGE.toUpperCase(Locale.ROOT)));
         File projectsFile = new File(FILE_NAME);
+        File legacyFile = new File(LEGACY_FILE_NAME);
+        File journalFile = new File(JOURNAL_FILE_NAME);
         ProjectsManager projectsManager = new ProjectsManager();
         boolean couldReadFile = false;
+        // if projects.dat holds all projects read, so that checkpoints can build on it
+        boolean completeDataFile = false;
 
         try {
 
-            if (projectsFile.exists()) {
-                List<Project> projects = ProjectsFileIO.deSerializeFromFile(projectsFile);
-                projectsManager.setProjects(projects);
-                couldReadFile = true;
+            List<Project> projects = new ArrayList<>();
+            try {
+                if (projectsFile.exists() && MAPPED)
+                    projects = ProjectsFileIO.mapFromFile(projectsFile);
+                else if (projectsFile.exists() || legacyFile.exists())
+                    projects = ProjectsFileIO.loadFromFile(projectsFile.exists() ? projectsFile : legacyFile);
+                completeDataFile = projectsFile.exists();
+            } catch (CorruptProjectsException e) {
+                Files.copy(projectsFile.toPath(), new File(DAMAGED_FILE_NAME).toPath(), StandardCopyOption.REPLACE_EXISTING);
+                System.out.println(e.getSkipped() + " projects could not be loaded, the data file is damaged.");
+                System.out.println("Continuing with the other projects, the damaged file is kept as " + DAMAGED_FILE_NAME + ".");
+                projects = e.getProjects();
             }
+            projectsManager.setProjects(ProjectsJournal.replay(journalFile, projects));
+            couldReadFile = true;
 
-            MainUI ui = new MainUI(projectsManager);
-            ui.mainLoop();
-
-        } catch (FileNotFoundException | ClassNotFoundException e) {
+        } catch (IOException | ClassNotFoundException e) {
             System.out.println("Could not load projects from file, please check the data file.");
-            System.out.println("Continuing with empty manager.");
+            System.out.println("Continuing with empty manager, changes will not be saved.");
         }
 
-        // run method about to exit - save data
-        if(couldReadFile || !projectsFile.exists()) {
-            List<Project> projectsToSave = projectsManager.getProjects();
-            ProjectsFileIO.serializeToFile(projectsFile, projectsToSave);
+        MainUI ui = new MainUI(projectsManager);
+        if (!couldReadFile) {
+            mainLoop(ui, projectsManager);
+        } else {
+            // every change is written to the journal as it is made
+            try (ProjectsJournal journal = new ProjectsJournal(journalFile, projectsFile, projectsManager::getProjects,
+                    ProjectsJournal.DEFAULT_SYNC_INTERVAL_MILLIS, ProjectsJournal.DEFAULT_COMPACT_THRESHOLD, AUTOSAVE_MILLIS)) {
+                if (!completeDataFile)
+                    journal.compact();
+                projectsManager.addListener(journal);
+                // changes of the last moments before the process is stopped reach the disk as well
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        journal.sync();
+                    } catch (IOException e) {
+                        System.out.println("Could not save the latest changes: " + e.getMessage());
+                    }
+                }, "projects-journal-flush"));
+                mainLoop(ui, projectsManager);
+
+                // run method about to exit - write the changes into the data file and empty the journal
+                journal.checkpoint();
+            }
         }
         System.out.println("Application exits");
     }
 
+    // runs the user interface, and serves the projects over HTTP at the same time if asked to
+    private void mainLoop(MainUI ui, ProjectsManager projectsManager) throws IOException, InterruptedException {
+        if (HTTP_PORT == null) {
+            ui.mainLoop();
+            return;
+        }
+        // read by the JDK when the first server is created, see TaskServer
+        if (System.getProperty("sun.net.httpserver.nodelay") == null)
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        try (TaskServer server = new TaskServer(projectsManager, new InetSocketAddress(HTTP_PORT), TaskServer.DEFAULT_BACKLOG)) {
+            server.start();
+            System.out.println("Serving projects on http://localhost:" + server.getAddress().getPort() + "/projects");
+            if (HEADLESS) {
+                // until the process is stopped, the shutdown hook then forces the journal to disk
+                Thread.currentThread().join();
+            }
+            ui.mainLoop();
+        }
+    }
+
     public static void main(String[] args) throws Exception {
 
         ProjectApp app = new ProjectApp();
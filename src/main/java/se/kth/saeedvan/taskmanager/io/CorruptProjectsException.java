@@ -0,0 +1,37 @@
+package se.kth.saeedvan.taskmanager.io;
+
+import se.kth.saeedvan.taskmanager.model.Project;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Thrown when part of a projects file is damaged, so that some of the projects could not be read.
+ * The projects that could be read are available from {@link #getProjects()}.
+ */
+public class CorruptProjectsException extends IOException {
+    private static final long serialVersionUID = 33510342245393096L;
+
+    private final transient List<Project> projects;
+    private final int skipped;
+
+    public CorruptProjectsException(String msg, List<Project> projects, int skipped) {
+        super(msg);
+        this.projects = projects;
+        this.skipped = skipped;
+    }
+
+    /**
+     * @return the projects that could be read, in the order they are stored in the file
+     */
+    public List<Project> getProjects() {
+        return projects;
+    }
+
+    /**
+     * @return the number of projects that could not be read
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+}
@@ -0,0 +1,285 @@
+package se.kth.saeedvan.taskmanager.io;
+
+import se.kth.saeedvan.taskmanager.model.ITaskLoader;
+import se.kth.saeedvan.taskmanager.model.Project;
+import se.kth.saeedvan.taskmanager.model.Task;
+import se.kth.saeedvan.taskmanager.model.TaskPrio;
+import se.kth.saeedvan.taskmanager.model.TaskState;
+import se.kth.saeedvan.taskmanager.model.TaskSummary;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Encodes a single project, with its tasks, to the binary record format and back.
+ * <p>
+ * A record holds the project fields, then a {@link TaskSummary} of the tasks, then a dictionary of the distinct
+ * taken by values and then the tasks. A task refers to its taken by value by its index in the dictionary.
+ * Records of files before version 3 have no summary. Dates are stored as epoch days,
+ * state and priority as enum ordinals and strings as length-prefixed UTF-8. {@code null} is stored as
+ * {@code -1} for lengths, ordinals and indexes and as {@link Integer#MIN_VALUE} for dates.
+ * A record is independent of all other records.
+ */
+final class ProjectCodec {
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    static final long NO_CHECKSUM = -1;
+    // the least number of bytes of a string and of a task, to check counts against the bytes left
+    private static final int MIN_STRING_SIZE = 4;
+    private static final int MIN_TASK_SIZE = 18;
+    private static final int SUMMARY_SIZE = 12;
+    private static final TaskPrio[] PRIOS = TaskPrio.values();
+    private static final TaskState[] STATES = TaskState.values();
+
+    /**
+     * Encodes the given project to a record.
+     *
+     * @param project the project to encode
+     * @return the record
+     */
+    static byte[] encode(Project project) {
+        List<Task> tasks = project.getTasks();
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> takenBys = new ArrayList<>();
+        int doneCount = 0;
+        LocalDate lastUpdate = null;
+        ByteArrayOutputStream taskBytes = new ByteArrayOutputStream(32 * tasks.size());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + 32 * tasks.size());
+        try (DataOutputStream out = new DataOutputStream(taskBytes)) {
+            // each value is read once, so that the summary, the dictionary and the task agree
+            // also when the task is changed by another thread meanwhile
+            for (Task t : tasks) {
+                TaskPrio prio = t.getPrio();
+                TaskState state = t.getState();
+                String takenBy = t.getTakenBy();
+                LocalDate updated = t.getLastUpdate();
+                if (takenBy != null && dictionary.putIfAbsent(takenBy, takenBys.size()) == null)
+                    takenBys.add(takenBy);
+                if (state == TaskState.DONE)
+                    doneCount++;
+                if (updated != null && (lastUpdate == null || updated.isAfter(lastUpdate)))
+                    lastUpdate = updated;
+                out.writeInt(t.getId());
+                writeString(out, t.getDescription());
+                out.writeByte(prio == null ? -1 : prio.ordinal());
+                out.writeByte(state == null ? -1 : state.ordinal());
+                out.writeInt(takenBy == null ? -1 : dictionary.get(takenBy));
+                writeDate(out, updated);
+            }
+        } catch (IOException e) {
+            // a ByteArrayOutputStream does not throw
+            throw new IllegalStateException(e);
+        }
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            encodeHeader(out, project);
+            out.writeInt(tasks.size());
+            out.writeInt(doneCount);
+            writeDate(out, lastUpdate);
+            out.writeInt(takenBys.size());
+            for (String takenBy : takenBys) {
+                writeString(out, takenBy);
+            }
+            out.writeInt(tasks.size());
+            taskBytes.writeTo(out);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Encodes the project fields, without the tasks, as at the start of a record.
+     *
+     * @param out the stream to write to
+     * @param project the project to encode
+     * @throws IOException if the stream could not be written
+     */
+    static void encodeHeader(DataOutputStream out, Project project) throws IOException {
+        out.writeInt(project.getId());
+        writeString(out, project.getTitle());
+        writeString(out, project.getDescription());
+        writeDate(out, project.getCreated());
+        out.writeInt(project.getNextTaskId());
+    }
+
+    /**
+     * Decodes a project, with its tasks, from a record.
+     *
+     * @param record the record, positioned at its start
+     * @param withSummary if the record holds a summary of the tasks, as records of version 3 files do
+     * @return the decoded project
+     * @throws IOException if the record is corrupt
+     */
+    static Project decode(ByteBuffer record, boolean withSummary) throws IOException {
+        // loaded through the task loader, so that the indexes of the project are built once
+        Project project = decodeLazily(record, withSummary);
+        try {
+            project.load();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return project;
+    }
+
+    /**
+     * Decodes the project fields and the summary of a record and leaves the tasks to be decoded the first time
+     * they are needed. The project keeps a view of the record, so the content of the record must not change
+     * afterwards. The checksum of the record should have been checked, if the tasks turn out to be corrupt
+     * anyway, loading them throws an {@link UncheckedIOException}.
+     *
+     * @param record the record, positioned at its start
+     * @param withSummary if the record holds a summary of the tasks, as records of version 3 files do
+     * @return the decoded project, with its tasks not yet loaded
+     * @throws IOException if the project fields are corrupt
+     */
+    static Project decodeLazily(ByteBuffer record, boolean withSummary) throws IOException {
+        ByteBuffer view = record.slice();
+        ITaskLoader loader = project -> {
+            try {
+                ByteBuffer tasks = view.duplicate();
+                skipHeader(tasks, withSummary);
+                decodeTasks(tasks, project);
+            } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException | DateTimeException e) {
+                throw new UncheckedIOException(new IOException("Corrupt project record", e));
+            }
+        };
+        try {
+            return decodeHeader(record, withSummary, loader);
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException | DateTimeException e) {
+            throw new IOException("Corrupt project record", e);
+        }
+    }
+
+    /**
+     * Decodes the project fields written by {@link #encodeHeader(DataOutputStream, Project)}, as in a record of
+     * the journal. The buffer is left positioned after them.
+     *
+     * @param record the fields, positioned at their start
+     * @return the decoded project, without tasks
+     */
+    static Project decodeHeader(ByteBuffer record) {
+        return decodeHeader(record, false, null);
+    }
+
+    private static Project decodeHeader(ByteBuffer record, boolean withSummary, ITaskLoader taskLoader) {
+        int id = record.getInt();
+        String title = readString(record);
+        String description = readString(record);
+        LocalDate created = readDate(record);
+        int nextTaskId = record.getInt();
+        TaskSummary summary = withSummary ? new TaskSummary(record.getInt(), record.getInt(), readDate(record)) : null;
+        if (taskLoader == null)
+            return Project.restore(title, description, id, created, nextTaskId);
+        return Project.restore(title, description, id, created, nextTaskId, summary, taskLoader);
+    }
+
+    /**
+     * @param record the bytes to check, from position to limit
+     * @return the CRC32 of the bytes, the position of {@code record} is not changed
+     */
+    static long checksum(ByteBuffer record) {
+        CRC32 crc = new CRC32();
+        crc.update(record.duplicate());
+        return crc.getValue();
+    }
+
+    private static void skipHeader(ByteBuffer record, boolean withSummary) {
+        record.getInt();
+        skipString(record);
+        skipString(record);
+        record.getInt();
+        record.getInt();
+        if (withSummary)
+            record.position(record.position() + SUMMARY_SIZE);
+    }
+
+    /**
+     * Decodes the tasks of a record and adds them to the given project.
+     *
+     * @param record the record, positioned after the project fields and the summary
+     * @param project the project to add the tasks to
+     */
+    static void decodeTasks(ByteBuffer record, Project project) {
+        String[] takenBys = new String[readCount(record, MIN_STRING_SIZE)];
+        for (int i = 0; i < takenBys.length; i++) {
+            takenBys[i] = readString(record);
+        }
+        int taskCount = readCount(record, MIN_TASK_SIZE);
+        for (int i = 0; i < taskCount; i++) {
+            int id = record.getInt();
+            String description = readString(record);
+            byte prio = record.get();
+            byte state = record.get();
+            int takenBy = record.getInt();
+            LocalDate lastUpdate = readDate(record);
+            project.restoreTask(id, description, prio < 0 ? null : PRIOS[prio], state < 0 ? null : STATES[state],
+                    takenBy < 0 ? null : takenBys[takenBy], lastUpdate);
+        }
+    }
+
+    /**
+     * Reads the number of the items that follow, checked against the bytes left in the buffer, so that
+     * a damaged count does not make the reader allocate more than the record can hold.
+     *
+     * @param in the buffer, positioned at the count
+     * @param minSize the least number of bytes of one item
+     * @return the count
+     */
+    private static int readCount(ByteBuffer in, int minSize) {
+        int count = in.getInt();
+        if (count < 0)
+            throw new IllegalArgumentException("Negative count " + count);
+        if (count > in.remaining() / minSize)
+            throw new BufferUnderflowException();
+        return count;
+    }
+
+    static void writeString(DataOutputStream out, String str) throws IOException {
+        if (str == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0)
+            return null;
+        if (length > in.remaining())
+            throw new BufferUnderflowException();
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void skipString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length > 0)
+            in.position(in.position() + length);
+    }
+
+    static void writeDate(DataOutputStream out, LocalDate date) throws IOException {
+        out.writeInt(date == null ? NO_DATE : Math.toIntExact(date.toEpochDay()));
+    }
+
+    static LocalDate readDate(ByteBuffer in) {
+        int epochDay = in.getInt();
+        return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    private ProjectCodec() {}
+}
@@ -1,27 +1,87 @@
 package se.kth.saeedvan.taskmanager.io;
 
+import se.kth.saeedvan.taskmanager.metrics.FileLoadEvent;
+import se.kth.saeedvan.taskmanager.metrics.FileSaveEvent;
+import se.kth.saeedvan.taskmanager.metrics.Metrics;
+import se.kth.saeedvan.taskmanager.metrics.TimedOperation;
 import se.kth.saeedvan.taskmanager.model.Project;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
 
 /**
  * Hints on how to implement serialization and deserialization
  * of lists of projects and users.
+ * <p>
+ * Projects are stored in a compact binary format with {@link #saveToFile(File, List)} and read with
+ * {@link #loadFromFile(File)}. The file starts with a magic number, a format version and the number of
+ * projects, followed by one chunk per project. A chunk holds a marker, the length and the CRC32 checksum of
+ * the record of the project, and the record, see {@link ProjectCodec}. Chunks are independent, so they are
+ * encoded and decoded in parallel, and a damaged chunk only loses its own project: the reader skips ahead
+ * to the next marker. Files of version 2, whose records have no summary of the tasks, and of version 1,
+ * with length-prefixed records only, can still be read.
+ * <p>
+ * Projects that have changed can be saved again with {@link #appendChunks(File, List, Collection)}, which
+ * appends a new chunk for each of them, and a marker chunk for each removed project, instead of writing the
+ * whole file. The latest chunk of a project is the one that counts. The header holds the number of chunks and
+ * the position where the last complete append ends, so that an append that was not finished is ignored.
+ * {@link #compactFile(File, File)} copies only the latest chunks to a new file.
+ * Files written with Java serialization by {@link #serializeToFile(File, List)} can still be read.
+ * <p>
+ * A file can also be opened with {@link #mapFromFile(File)}, which maps it into memory and only decodes
+ * the tasks of a project when they are first needed.
  */
 public class ProjectsFileIO {
 
+    private static final int MAGIC = 0x544D4752; // "TMGR"
+    private static final short VERSION = 3;
+    // records without the summary of the tasks
+    private static final short VERSION_2 = 2;
+    // records without chunk header and checksum
+    private static final short VERSION_1 = 1;
+    private static final int CHUNK_MAGIC = 0x43484E4B; // "CHNK"
+    private static final int REMOVED_MAGIC = 0x524D5644; // "RMVD"
+    private static final int CHUNK_HEADER_SIZE = 12;
+    // number of projects encoded in parallel before they are written
+    private static final int SAVE_BATCH = 256;
+    private static final int SERIALIZATION_MAGIC = 0xACED;
+    private static final int BUFFER_SIZE = 1 << 16;
+    // header of versions 1 and 2, without the end of the chunks
+    private static final int HEADER_SIZE = 10;
+    private static final int HEADER_SIZE_3 = 18;
+    private static final int COUNT_POSITION = 6;
+    private static final int END_POSITION = 10;
+    // the end of a file that has not been appended to is the end of the file
+    private static final long TO_FILE_END = Long.MAX_VALUE;
+
     /**
      * Call this method before the application exits, to store the users and projects,
      * in serialized form.
      */
 
     public static void serializeToFile(File file, List<Project> data) throws IOException {
+        long start = Metrics.start();
+        FileSaveEvent event = new FileSaveEvent();
+        event.begin();
         try(FileOutputStream fos = new FileOutputStream(file);
             ObjectOutputStream oos = new ObjectOutputStream(fos)) {
             oos.writeObject(data);
+        } finally {
+            Metrics.record(TimedOperation.FILE_SERIALIZE, start);
         }
+        if (event.shouldCommit())
+            event.commit(TimedOperation.FILE_SERIALIZE, file.getPath(), data.size(), loadedTaskCount(data), file.length());
         // ...
         // and then, make sure the file always get closed
     }
@@ -33,11 +93,462 @@ public class ProjectsFileIO {
     @SuppressWarnings("unchecked")
     public static List<Project> deSerializeFromFile(File file) throws IOException, ClassNotFoundException {
         // try returning List direct without initializing a reference;
+        long start = Metrics.start();
+        FileLoadEvent event = new FileLoadEvent();
+        event.begin();
         try(FileInputStream fis = new FileInputStream(file);
             ObjectInputStream ois = new ObjectInputStream(fis)) {
-            return (List<Project>) ois.readObject();
+            List<Project> projects = (List<Project>) ois.readObject();
+            if (event.shouldCommit())
+                event.commit(TimedOperation.FILE_DESERIALIZE, file.getPath(), projects.size(), loadedTaskCount(projects), file.length());
+            return projects;
+        } finally {
+            Metrics.record(TimedOperation.FILE_DESERIALIZE, start);
+        }
+    }
+
+    /**
+     * Stores the projects, with their tasks, in the binary format.
+     * Each project is written as a chunk with its own checksum. The chunks are encoded in parallel,
+     * a batch of projects at a time, and written in the order of the list.
+     * The method returns when the file has been forced to disk.
+     *
+     * @param file the file to write, replaced if it exists
+     * @param data the projects to store
+     * @throws IOException if the file could not be written
+     */
+    public static void saveToFile(File file, List<Project> data) throws IOException {
+        long start = Metrics.start();
+        FileSaveEvent event = new FileSaveEvent();
+        event.begin();
+        try {
+            writeChunks(file, data);
+            if (event.shouldCommit())
+                event.commit(TimedOperation.FILE_SAVE, file.getPath(), data.size(), loadedTaskCount(data), file.length());
+        } finally {
+            Metrics.record(TimedOperation.FILE_SAVE, start);
+        }
+    }
+
+    private static void writeChunks(File file, List<Project> data) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+             DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(data.size());
+            out.writeLong(TO_FILE_END);
+            for (int from = 0; from < data.size(); from += SAVE_BATCH) {
+                List<byte[]> chunks = data.subList(from, Math.min(data.size(), from + SAVE_BATCH))
+                        .parallelStream()
+                        .map(ProjectsFileIO::encodeChunk)
+                        .toList();
+                for (byte[] chunk : chunks) {
+                    out.write(chunk);
+                }
+            }
+            out.flush();
+            writeCount(channel, data.size(), channel.size());
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Saves some projects again in a file written by {@link #saveToFile(File, List)}, without rewriting the
+     * other projects. A new chunk is appended for each changed project, and a marker for each removed project.
+     * The chunks are forced to disk before the header is changed to include them, so that the file holds either
+     * all or none of the changes if the application stops meanwhile. Appending does not change the bytes
+     * already in the file, so the file may be mapped by {@link #mapFromFile(File)} while chunks are appended.
+     * <p>
+     * A project that is saved many times leaves old chunks behind, see {@link #compactFile(File, File)}.
+     *
+     * @param file the file to append to
+     * @param changed the projects to save, in the file or new
+     * @param removedIds the ids of the projects to remove from the file
+     * @return {@code false} if the file is of an older version, which must be saved again completely
+     * @throws IOException if the file could not be written, it then holds the projects as before
+     */
+    static boolean appendChunks(File file, List<Project> changed, Collection<Integer> removedIds) throws IOException {
+        long start = Metrics.start();
+        FileSaveEvent event = new FileSaveEvent();
+        event.begin();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = readAt(channel, 0, Math.min(HEADER_SIZE_3, channel.size()));
+            if (!isVersion3(header))
+                return false;
+            int chunkCount = header.getInt(COUNT_POSITION);
+            long end = Math.min(header.getLong(END_POSITION), channel.size());
+            // drops what a failed append left behind
+            channel.truncate(end);
+
+            long position = end;
+            for (int from = 0; from < changed.size(); from += SAVE_BATCH) {
+                List<byte[]> chunks = changed.subList(from, Math.min(changed.size(), from + SAVE_BATCH))
+                        .parallelStream()
+                        .map(ProjectsFileIO::encodeChunk)
+                        .toList();
+                for (byte[] chunk : chunks) {
+                    position += writeAt(channel, ByteBuffer.wrap(chunk), position);
+                }
+            }
+            for (int id : removedIds) {
+                byte[] record = ByteBuffer.allocate(4).putInt(id).array();
+                position += writeAt(channel, ByteBuffer.wrap(encodeChunk(REMOVED_MAGIC, record)), position);
+            }
+            channel.force(false);
+            writeCount(channel, chunkCount + changed.size() + removedIds.size(), position);
+            channel.force(false);
+            if (event.shouldCommit())
+                event.commit(TimedOperation.FILE_APPEND, file.getPath(), changed.size(), loadedTaskCount(changed), position - end);
+            return true;
+        } finally {
+            Metrics.record(TimedOperation.FILE_APPEND, start);
+        }
+    }
+
+    /**
+     * Writes the latest chunk of each project in a file that chunks have been appended to by
+     * {@link #appendChunks(File, List, Collection)} to a new file, leaving out the chunks that have been
+     * replaced and the removed projects. Only the chunk headers are read, the chunks are copied from
+     * file to file as they are, without being decoded or checked.
+     *
+     * @param from the file to compact
+     * @param to the file to write, replaced if it exists
+     * @throws IOException if a file could not be read or written, or {@code from} is damaged or of an older version
+     */
+    static void compactFile(File from, File to) throws IOException {
+        long start = Metrics.start();
+        FileSaveEvent event = new FileSaveEvent();
+        event.begin();
+        try (FileChannel in = FileChannel.open(from.toPath(), StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(to.toPath(), StandardOpenOption.WRITE,
+                     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = readAt(in, 0, Math.min(HEADER_SIZE_3, in.size()));
+            if (!isVersion3(header))
+                throw new IOException("Not a projects file of version " + VERSION + ": " + from);
+            long end = Math.min(header.getLong(END_POSITION), in.size());
+
+            Map<Integer, Extent> latest = new LinkedHashMap<>();
+            for (long position = HEADER_SIZE_3; position < end; ) {
+                if (position + CHUNK_HEADER_SIZE + 4 > end)
+                    throw new IOException("Damaged chunk at " + position + " in " + from);
+                ByteBuffer chunkHeader = readAt(in, position, CHUNK_HEADER_SIZE + 4);
+                int magic = chunkHeader.getInt(0);
+                int length = chunkHeader.getInt(4);
+                if (magic != CHUNK_MAGIC && magic != REMOVED_MAGIC || length < 4
+                        || length > end - position - CHUNK_HEADER_SIZE)
+                    throw new IOException("Damaged chunk at " + position + " in " + from);
+                int id = chunkHeader.getInt(CHUNK_HEADER_SIZE);
+                if (magic == REMOVED_MAGIC)
+                    latest.remove(id);
+                else
+                    latest.put(id, new Extent(position, CHUNK_HEADER_SIZE + length));
+                position += CHUNK_HEADER_SIZE + length;
+            }
+
+            writeAt(out, ByteBuffer.allocate(HEADER_SIZE_3)
+                    .putInt(MAGIC)
+                    .putShort(VERSION)
+                    .putInt(latest.size())
+                    .putLong(TO_FILE_END)
+                    .flip(), 0);
+            out.position(HEADER_SIZE_3);
+            for (Extent extent : latest.values()) {
+                for (long copied = 0; copied < extent.length(); ) {
+                    copied += in.transferTo(extent.start() + copied, extent.length() - copied, out);
+                }
+            }
+            long position = out.position();
+            writeCount(out, latest.size(), position);
+            out.force(false);
+            if (event.shouldCommit())
+                event.commit(TimedOperation.FILE_COMPACT, to.getPath(), latest.size(), 0, position);
+        } finally {
+            Metrics.record(TimedOperation.FILE_COMPACT, start);
+        }
+    }
+
+    /**
+     * Reads the projects, with their tasks, from a file in the binary format. The chunks are checked
+     * and decoded in parallel. A file written with {@link #serializeToFile(File, List)} is recognized and
+     * read with {@link #deSerializeFromFile(File)}, so that old files can be migrated by saving them again
+     * with {@link #saveToFile(File, List)}.
+     * <p>
+     * If some chunks are damaged, the other projects are still read and returned by
+     * {@link CorruptProjectsException#getProjects()} of the thrown exception.
+     *
+     * @param file the file to read
+     * @return the projects in the file
+     * @throws CorruptProjectsException if some of the projects could not be read
+     * @throws IOException if the file could not be read or is not a projects file
+     * @throws ClassNotFoundException if the file is an old serialized file with unknown classes
+     */
+    public static List<Project> loadFromFile(File file) throws IOException, ClassNotFoundException {
+        return read(file, false);
+    }
+
+    /**
+     * Opens a file in the binary format by mapping it into memory, without decoding the tasks.
+     * Only the project fields are read here, which gives a table of the projects and where their records are
+     * in the file. The tasks of a project are decoded from the mapped file the first time they are needed,
+     * for example when the project is opened, so that opening a large file is fast and projects that are not
+     * used take little memory. The checksums of all projects are checked here, so that a damaged project is
+     * left out as with {@link #loadFromFile(File)} instead of failing when its tasks are loaded. Records of
+     * version 1 files, which have no checksum, are decoded here.
+     * <p>
+     * The bytes of the file must not be changed while any of the projects have tasks that are not loaded.
+     * Chunks can still be appended with {@link #appendChunks(File, List, Collection)}, other changes must
+     * replace the file with a new one, as {@link ProjectsJournal} does. A file written with
+     * {@link #serializeToFile(File, List)} is read completely with {@link #deSerializeFromFile(File)}.
+     *
+     * @param file the file to map
+     * @return the projects in the file, with their tasks not yet loaded
+     * @throws CorruptProjectsException if some of the projects could not be read
+     * @throws IOException if the file could not be read or is not a projects file
+     * @throws ClassNotFoundException if the file is an old serialized file with unknown classes
+     */
+    public static List<Project> mapFromFile(File file) throws IOException, ClassNotFoundException {
+        return read(file, true);
+    }
+
+    private static List<Project> read(File file, boolean mapped) throws IOException, ClassNotFoundException {
+        TimedOperation operation = mapped ? TimedOperation.FILE_MAP : TimedOperation.FILE_LOAD;
+        long start = Metrics.start();
+        FileLoadEvent event = new FileLoadEvent();
+        event.begin();
+        try {
+            List<Project> projects = readChunks(file, mapped);
+            if (event.shouldCommit())
+                event.commit(operation, file.getPath(), projects.size(), loadedTaskCount(projects), file.length());
+            return projects;
+        } finally {
+            Metrics.record(operation, start);
+        }
+    }
+
+    // tasks of projects that are not loaded are not counted, so that counting does not load them
+    private static long loadedTaskCount(List<Project> projects) {
+        long tasks = 0;
+        for (Project p : projects) {
+            if (p.isLoaded())
+                tasks += p.getTaskCount();
+        }
+        return tasks;
+    }
+
+    private static List<Project> readChunks(File file, boolean mapped) throws IOException, ClassNotFoundException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            WindowedFile in = new WindowedFile(channel, mapped);
+            if (in.size() >= 4 && in.getInt(0) >>> 16 == SERIALIZATION_MAGIC)
+                return deSerializeFromFile(file);
+            if (in.size() < HEADER_SIZE || in.getInt(0) != MAGIC)
+                throw new IOException("Not a projects file: " + file);
+            short version = in.slice(4, 2).getShort();
+            if (version != VERSION && version != VERSION_2 && version != VERSION_1)
+                throw new IOException("Unsupported projects file version " + version + ": " + file);
+            boolean version3 = version == VERSION;
+            if (version3 && in.size() < HEADER_SIZE_3)
+                throw new IOException("Not a projects file: " + file);
+            int chunkCount = in.getInt(COUNT_POSITION);
+            long end = version3 ? Math.min(in.slice(END_POSITION, 8).getLong(), in.size()) : in.size();
+
+            List<Chunk> chunks = version == VERSION_1 ? readRecords(in, chunkCount)
+                    : scanChunks(in, version3 ? HEADER_SIZE_3 : HEADER_SIZE, end);
+            List<Chunk> checked = chunks.parallelStream()
+                    .map(c -> c != null && c.isValid() ? c : null)
+                    .toList();
+            int damaged = 0;
+            for (Chunk c : checked) {
+                if (c == null)
+                    damaged++;
+            }
+            List<Chunk> latest = version3 ? latestChunks(checked)
+                    : checked.stream().filter(Objects::nonNull).toList();
+            List<Project> decoded = latest.parallelStream()
+                    .map(c -> decodeChunk(c, mapped, version3))
+                    .toList();
+            List<Project> projects = new ArrayList<>(decoded.size());
+            for (Project p : decoded) {
+                if (p != null)
+                    projects.add(p);
+            }
+            int skipped = Math.max(chunkCount - (checked.size() - damaged), damaged) + decoded.size() - projects.size();
+            if (skipped > 0)
+                throw new CorruptProjectsException(skipped + " projects in " + file + " are damaged and could not be read",
+                        projects, skipped);
+            return projects;
+        }
+    }
+
+    /**
+     * Keeps the latest chunk of each project and leaves out the removed projects. The projects are in the order
+     * they were first saved in.
+     */
+    private static List<Chunk> latestChunks(List<Chunk> chunks) {
+        Map<Integer, Chunk> latest = new LinkedHashMap<>();
+        for (Chunk chunk : chunks) {
+            if (chunk == null)
+                continue;
+            int id = chunk.record().getInt(0);
+            if (chunk.removed())
+                latest.remove(id);
+            else
+                latest.put(id, chunk);
         }
+        return new ArrayList<>(latest.values());
     }
 
+    private static byte[] encodeChunk(Project project) {
+        return encodeChunk(CHUNK_MAGIC, ProjectCodec.encode(project));
+    }
+
+    private static byte[] encodeChunk(int magic, byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        return ByteBuffer.allocate(CHUNK_HEADER_SIZE + record.length)
+                .putInt(magic)
+                .putInt(record.length)
+                .putInt((int) crc.getValue())
+                .put(record)
+                .array();
+    }
+
+    private static boolean isVersion3(ByteBuffer header) {
+        return header.limit() == HEADER_SIZE_3 && header.getInt(0) == MAGIC && header.getShort(4) == VERSION;
+    }
+
+    /**
+     * Sets the number of chunks and where they end in the header of a version 3 file.
+     */
+    private static void writeCount(FileChannel channel, int chunkCount, long end) throws IOException {
+        writeAt(channel, ByteBuffer.allocate(12).putInt(chunkCount).putLong(end).flip(), COUNT_POSITION);
+    }
+
+    private static ByteBuffer readAt(FileChannel channel, long position, long length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new EOFException("End of file at " + (position + buffer.position()));
+        }
+        return buffer.flip();
+    }
+
+    private static int writeAt(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int length = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + length - buffer.remaining());
+        }
+        return length;
+    }
+
+    /**
+     * Decodes the project of a chunk whose checksum has been checked.
+     *
+     * @return the project, or {@code null} if the chunk could not be decoded
+     */
+    private static Project decodeChunk(Chunk chunk, boolean lazy, boolean withSummary) {
+        try {
+            // a record without checksum is decoded right away, so that damage is found now
+            if (lazy && chunk.checksum() != ProjectCodec.NO_CHECKSUM)
+                return ProjectCodec.decodeLazily(chunk.record(), withSummary);
+            return ProjectCodec.decode(chunk.record().duplicate(), withSummary);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads the records of a version 1 file, which have no checksums and are read up to the first damaged one.
+     */
+    private static List<Chunk> readRecords(WindowedFile in, int projectCount) throws IOException {
+        List<Chunk> records = new ArrayList<>(Math.max(0, Math.min(projectCount, 1 << 16)));
+        long position = HEADER_SIZE;
+        for (int i = 0; i < projectCount; i++) {
+            int length = in.getInt(position);
+            if (length < 0)
+                throw new IOException("Corrupt project record at " + position);
+            records.add(new Chunk(position, in.slice(position, 4 + length), 4, ProjectCodec.NO_CHECKSUM, false));
+            position += 4 + length;
+        }
+        return records;
+    }
+
+    /**
+     * Finds the chunks of a file from {@code start} to {@code end}. Where the file is damaged, the bytes are
+     * skipped up to the next valid chunk and a {@code null} is added to the list in place of the lost chunks.
+     * The checksums are only checked when the chunks do not follow each other, the other chunks are checked
+     * after the scan.
+     */
+    private static List<Chunk> scanChunks(WindowedFile in, long start, long end) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        long position = start;
+        boolean resyncing = false;
+        while (position < end) {
+            Chunk chunk = chunkAt(in, position, end);
+            if (chunk != null) {
+                chunks.add(chunk);
+                position = chunk.end();
+                resyncing = false;
+                continue;
+            }
+            if (!resyncing) {
+                resyncing = true;
+                // a damaged length in the previous chunk makes it point here instead of to the next chunk
+                Chunk previous = chunks.isEmpty() ? null : chunks.getLast();
+                if (previous != null && !previous.isValid()) {
+                    chunks.removeLast();
+                    position = previous.start();
+                }
+                if (chunks.isEmpty() || chunks.getLast() != null)
+                    chunks.add(null);
+            }
+            position++;
+        }
+        return chunks;
+    }
+
+    private static Chunk chunkAt(WindowedFile in, long position, long end) throws IOException {
+        if (position + CHUNK_HEADER_SIZE > end)
+            return null;
+        int magic = in.getInt(position);
+        if (magic != CHUNK_MAGIC && magic != REMOVED_MAGIC)
+            return null;
+        int length = in.getInt(position + 4);
+        // every record starts with the id of its project
+        if (length < 4 || length > end - position - CHUNK_HEADER_SIZE)
+            return null;
+        return new Chunk(position, in.slice(position, CHUNK_HEADER_SIZE + length), CHUNK_HEADER_SIZE,
+                Integer.toUnsignedLong(in.getInt(position + 8)), magic == REMOVED_MAGIC);
+    }
+
+    /**
+     * The chunk of one project in the file.
+     *
+     * @param start the position of the chunk in the file
+     * @param bytes the whole chunk
+     * @param headerSize the number of bytes before the record of the project
+     * @param checksum the CRC32 of the record, or {@link ProjectCodec#NO_CHECKSUM}
+     * @param removed if the chunk marks the project as removed, its record is then only the id of the project
+     */
+    private record Chunk(long start, ByteBuffer bytes, int headerSize, long checksum, boolean removed) {
+        long end() {
+            return start + bytes.remaining();
+        }
+
+        ByteBuffer record() {
+            return bytes.slice(headerSize, bytes.remaining() - headerSize);
+        }
+
+        boolean isValid() {
+            return checksum == ProjectCodec.NO_CHECKSUM || ProjectCodec.checksum(record()) == checksum;
+        }
+    }
+
+    /**
+     * Where a chunk is in a file.
+     */
+    private record Extent(long start, long length) {}
+
     private ProjectsFileIO() {}
 }
@@ -0,0 +1,585 @@
+package se.kth.saeedvan.taskmanager.io;
+
+import se.kth.saeedvan.taskmanager.model.*;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead journal of the changes made to the projects, so that changes reach the disk as they are made
+ * and saving does not have to rewrite all projects.
+ * <p>
+ * The journal is added as a listener to the {@link ProjectsManager} and appends one record per change:
+ * a project added or removed, a task added, removed or updated. Records are written to the file right away,
+ * and a background thread forces the file to disk every {@code syncIntervalMillis}, so that all changes made
+ * in that time share one fsync.
+ * <p>
+ * Every {@code autosaveIntervalMillis}, or as soon as the file grows beyond {@code compactThreshold} bytes,
+ * another background thread makes a checkpoint, see {@link #checkpoint()}: the projects changed by the records
+ * in the journal are appended to the snapshot file and the records are removed from the journal. Only the
+ * changed projects are encoded and written, the rest of the snapshot file is neither read nor rewritten.
+ * When the old chunks of changed projects have made the snapshot file twice as large as it was when it was
+ * last written completely, it is compacted by copying the latest chunks to a new file.
+ * {@link #compact()} instead saves all projects of the application, which is needed when there is no complete
+ * snapshot file to build on.
+ * <p>
+ * At startup, {@link #replay(File, List)} applies the journal to the projects read from the snapshot file.
+ * A record of a task holds the whole task, so replaying a record that is already in the snapshot changes nothing.
+ * Each record is stored with its length and a CRC32 checksum, and replay stops at a record that was only
+ * partly written when the application stopped.
+ * <p>
+ * The listener methods never throw. If a record can not be written or the journal can not be forced to disk,
+ * the journal is broken: no more records are appended, and the next checkpoint saves the changed projects
+ * from the application and then starts a new, empty journal. {@link #sync()} makes that checkpoint right
+ * away, and it and {@link #close()} throw if the changes could not be saved.
+ */
+public final class ProjectsJournal implements IProjectListener, Closeable {
+    public static final long DEFAULT_SYNC_INTERVAL_MILLIS = 100;
+    public static final long DEFAULT_COMPACT_THRESHOLD = 16L << 20;
+    public static final long DEFAULT_AUTOSAVE_INTERVAL_MILLIS = 60_000;
+
+    private static final byte PROJECT_ADDED = 1;
+    private static final byte PROJECT_REMOVED = 2;
+    private static final byte TASK_PUT = 3;
+    private static final byte TASK_REMOVED = 4;
+    private static final int RECORD_HEADER_SIZE = 8;
+    // the snapshot file is not compacted before it has grown beyond twice this size
+    private static final long MIN_SNAPSHOT_SIZE = 1L << 20;
+    private static final TaskPrio[] PRIOS = TaskPrio.values();
+    private static final TaskState[] STATES = TaskState.values();
+
+    private final File journalFile;
+    private final File snapshotFile;
+    private final Supplier<List<Project>> projects;
+    private final long compactThreshold;
+    private final ScheduledExecutorService syncer;
+    private final ScheduledExecutorService autosaver;
+    // held by a checkpoint or compaction from start to end, so that they run one at a time
+    private final Object checkpointLock = new Object();
+    // the size of the snapshot file when it was last written completely, guarded by checkpointLock
+    private long snapshotBase;
+    // ids of the projects changed by the records in the journal, saved by the next checkpoint
+    private Set<Integer> changed;
+    // replaced when a checkpoint removes the start of the journal
+    private FileChannel channel;
+    // the number of records appended, and how many of them have been forced to disk
+    private long appended;
+    private long forced;
+    // set when a record could not be written or forced to disk, until a checkpoint has saved the changes
+    private boolean broken;
+    private IOException failure;
+    private boolean checkpointQueued;
+    private boolean closed;
+
+    /**
+     * Opens the journal with {@link #DEFAULT_SYNC_INTERVAL_MILLIS}, {@link #DEFAULT_COMPACT_THRESHOLD}
+     * and {@link #DEFAULT_AUTOSAVE_INTERVAL_MILLIS}.
+     *
+     * @param journalFile the journal file, created if it does not exist
+     * @param snapshotFile the file the projects are saved to when the journal is compacted
+     * @param projects supplies the projects to save when the journal is compacted
+     * @throws IOException if the journal file could not be opened
+     */
+    public ProjectsJournal(File journalFile, File snapshotFile, Supplier<List<Project>> projects) throws IOException {
+        this(journalFile, snapshotFile, projects, DEFAULT_SYNC_INTERVAL_MILLIS, DEFAULT_COMPACT_THRESHOLD,
+                DEFAULT_AUTOSAVE_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Opens the journal. New records are appended after the records already in the file,
+     * a partly written record at the end of the file is removed.
+     *
+     * @param journalFile the journal file, created if it does not exist
+     * @param snapshotFile the file the projects are saved to when the journal is compacted
+     * @param projects supplies the projects to save when the journal is compacted
+     * @param syncIntervalMillis how often the journal is forced to disk
+     * @param compactThreshold the size in bytes from which a checkpoint is made without waiting for the interval
+     * @param autosaveIntervalMillis how often a checkpoint is made, if the journal is not empty
+     * @throws IOException if the journal file could not be opened
+     */
+    public ProjectsJournal(File journalFile, File snapshotFile, Supplier<List<Project>> projects,
+                           long syncIntervalMillis, long compactThreshold, long autosaveIntervalMillis) throws IOException {
+        this.channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.journalFile = journalFile;
+        this.snapshotFile = snapshotFile;
+        this.projects = projects;
+        this.compactThreshold = compactThreshold;
+        this.snapshotBase = snapshotFile.length();
+
+        ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(journalFile.toPath()));
+        content.limit(validLength(content));
+        channel.truncate(content.limit());
+        channel.position(channel.size());
+        this.changed = changedProjects(content);
+
+        this.syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "projects-journal-sync");
+            t.setDaemon(true);
+            return t;
+        });
+        syncer.scheduleWithFixedDelay(this::syncInBackground, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+        this.autosaver = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "projects-autosave");
+            t.setDaemon(true);
+            return t;
+        });
+        autosaver.scheduleWithFixedDelay(this::checkpointInBackground, autosaveIntervalMillis, autosaveIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void projectAdded(Project project) {
+        append(project, PROJECT_ADDED, out -> ProjectCodec.encodeHeader(out, project));
+    }
+
+    @Override
+    public void projectRemoved(Project project) {
+        append(project, PROJECT_REMOVED, out -> out.writeInt(project.getId()));
+    }
+
+    @Override
+    public void taskAdded(Project project, Task task) {
+        taskUpdated(project, task);
+    }
+
+    @Override
+    public void taskUpdated(Project project, Task task) {
+        append(project, TASK_PUT, out -> {
+            out.writeInt(project.getId());
+            out.writeInt(task.getId());
+            ProjectCodec.writeString(out, task.getDescription());
+            out.writeByte(task.getPrio() == null ? -1 : task.getPrio().ordinal());
+            out.writeByte(task.getState() == null ? -1 : task.getState().ordinal());
+            ProjectCodec.writeString(out, task.getTakenBy());
+            ProjectCodec.writeDate(out, task.getLastUpdate());
+        });
+    }
+
+    @Override
+    public void taskRemoved(Project project, Task task) {
+        append(project, TASK_REMOVED, out -> {
+            out.writeInt(project.getId());
+            out.writeInt(task.getId());
+        });
+    }
+
+    /**
+     * Forces all appended records to disk. If the journal is broken, or can not be forced to disk,
+     * a checkpoint saves the changes instead.
+     *
+     * @throws IOException if the changes could not be saved, neither in the journal nor by a checkpoint
+     */
+    public void sync() throws IOException {
+        FileChannel current;
+        long count;
+        boolean recover;
+        synchronized (this) {
+            if (!broken && forced == appended)
+                return;
+            current = channel;
+            count = appended;
+            recover = broken;
+        }
+        if (!recover) {
+            // outside the lock, so that changes can be appended while waiting for the disk
+            try {
+                current.force(false);
+                synchronized (this) {
+                    if (!broken) {
+                        forced = Math.max(forced, count);
+                        return;
+                    }
+                }
+            } catch (IOException e) {
+                synchronized (this) {
+                    // a checkpoint replaced the file, after forcing the records to disk
+                    if (e instanceof ClosedChannelException && current != channel)
+                        return;
+                    markBroken(e);
+                }
+            }
+        }
+
+        // the records may not be on disk, so the changes are saved from the projects instead
+        checkpoint();
+        synchronized (this) {
+            if (broken)
+                throw new IOException("Could not save the changes to the projects", failure);
+        }
+    }
+
+    /**
+     * Saves all projects to the snapshot file and empties the journal. The snapshot is first written to
+     * a temporary file, which then replaces the snapshot file, so a crash never leaves a half written snapshot.
+     * <p>
+     * The projects are saved without holding the lock of the journal, since saving a project waits for changes
+     * to it, which are appended to the journal while holding the lock of the project. Changes appended while
+     * the projects are saved may or may not be in the snapshot, so they are kept in the journal, where
+     * replaying them again does no harm.
+     *
+     * @throws IOException if the snapshot could not be saved or the journal could not be emptied
+     */
+    public void compact() throws IOException {
+        synchronized (checkpointLock) {
+            save(true);
+        }
+    }
+
+    /**
+     * Writes the changes in the journal into the snapshot file and removes them from the journal.
+     * <p>
+     * The projects changed by the records in the journal are taken from the application and appended to the
+     * snapshot file, with a marker for each removed project, see {@link ProjectsFileIO#appendChunks}.
+     * If the snapshot file is missing or of an older version, all projects are saved as by {@link #compact()}.
+     * Changes are appended to the journal while the checkpoint runs and are kept for the next one.
+     * A checkpoint never runs at the same time as another one or {@link #compact()}.
+     * Nothing is done if the journal is empty.
+     *
+     * @throws IOException if the snapshot could not be saved, the journal is then unchanged
+     */
+    public void checkpoint() throws IOException {
+        synchronized (checkpointLock) {
+            save(false);
+        }
+    }
+
+    private void save(boolean all) throws IOException {
+        long end;
+        Set<Integer> ids;
+        boolean recovering;
+        synchronized (this) {
+            if (closed) {
+                if (all)
+                    throw new IOException("Journal is closed");
+                return;
+            }
+            if (!all && !broken && changed.isEmpty())
+                return;
+            // a broken journal is replaced by an empty one, since the changes it misses are saved as well
+            recovering = broken;
+            end = recovering ? 0 : channel.size();
+            ids = changed;
+            changed = new HashSet<>();
+        }
+
+        try {
+            if (all || !snapshotFile.exists() || !appendChanged(ids))
+                saveAll();
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                changed.addAll(ids);
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            if (closed) {
+                if (all)
+                    throw new IOException("Journal is closed");
+                return;
+            }
+            try {
+                if (recovering)
+                    restart();
+                else
+                    removeUpTo(end);
+            } catch (IOException e) {
+                markBroken(e);
+                throw e;
+            }
+        }
+        if (snapshotFile.length() > 2 * Math.max(snapshotBase, MIN_SNAPSHOT_SIZE))
+            compactSnapshot();
+    }
+
+    /**
+     * Appends the projects with the given ids to the snapshot file, as they are now.
+     *
+     * @return {@code false} if the snapshot file is of an older version and was not changed
+     */
+    private boolean appendChanged(Set<Integer> ids) throws IOException {
+        List<Project> changedProjects = new ArrayList<>();
+        Set<Integer> removedIds = new HashSet<>(ids);
+        for (Project p : projects.get()) {
+            if (removedIds.remove(p.getId()))
+                changedProjects.add(p);
+        }
+        return ProjectsFileIO.appendChunks(snapshotFile, changedProjects, removedIds);
+    }
+
+    private void saveAll() throws IOException {
+        File tmpFile = new File(snapshotFile.getPath() + ".tmp");
+        ProjectsFileIO.saveToFile(tmpFile, projects.get());
+        Files.move(tmpFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        snapshotBase = snapshotFile.length();
+    }
+
+    /**
+     * Replaces the snapshot file with one that only holds the latest chunk of each project. If the snapshot
+     * file can not be compacted, for example because it is damaged, all projects are saved again instead.
+     */
+    private void compactSnapshot() throws IOException {
+        File tmpFile = new File(snapshotFile.getPath() + ".tmp");
+        try {
+            ProjectsFileIO.compactFile(snapshotFile, tmpFile);
+        } catch (IOException e) {
+            saveAll();
+            return;
+        }
+        Files.move(tmpFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        snapshotBase = snapshotFile.length();
+    }
+
+    /**
+     * Removes the records before {@code end} from the journal. The records after are copied to a new journal
+     * file, which replaces the old one.
+     */
+    private void removeUpTo(long end) throws IOException {
+        long size = channel.size();
+        if (end == size) {
+            channel.truncate(0);
+            channel.force(false);
+            forced = appended;
+            return;
+        }
+        File tmpFile = new File(journalFile.getPath() + ".tmp");
+        try (FileChannel tail = FileChannel.open(tmpFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (long position = end; position < size; ) {
+                position += channel.transferTo(position, size - position, tail);
+            }
+            tail.force(false);
+        }
+        Files.move(tmpFile.toPath(), journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        FileChannel old = channel;
+        channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        forced = appended;
+        old.close();
+    }
+
+    /**
+     * Replaces a broken journal with an empty one, after a checkpoint has saved all changes.
+     * Changes made while the checkpoint ran are not in the journal, so another checkpoint is queued for them.
+     */
+    private void restart() throws IOException {
+        FileChannel fresh = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        fresh.force(false);
+        FileChannel old = channel;
+        channel = fresh;
+        forced = appended;
+        broken = false;
+        failure = null;
+        try {
+            old.close();
+        } catch (IOException e) {
+            // the file of the old channel has been emptied already
+        }
+        if (!changed.isEmpty())
+            queueCheckpoint();
+    }
+
+    /**
+     * Stops the background threads, forces the journal to disk and closes it.
+     *
+     * @throws IOException if the changes could not be saved, see {@link #sync()}
+     */
+    @Override
+    public void close() throws IOException {
+        syncer.shutdown();
+        autosaver.shutdown();
+        try {
+            sync();
+        } finally {
+            synchronized (this) {
+                closed = true;
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Applies the changes in a journal to the given projects, read from the snapshot file.
+     *
+     * @param journalFile the journal file, if it does not exist the projects are returned unchanged
+     * @param projects the projects read from the snapshot file, the tasks of these projects are changed
+     * @return the projects after all changes in the journal
+     * @throws IOException if the journal could not be read
+     */
+    public static List<Project> replay(File journalFile, List<Project> projects) throws IOException {
+        if (!journalFile.exists())
+            return projects;
+        Map<Integer, Project> byId = new LinkedHashMap<>();
+        for (Project p : projects) {
+            byId.put(p.getId(), p);
+        }
+
+        ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(journalFile.toPath()));
+        int validEnd = validLength(content);
+        while (content.position() < validEnd) {
+            int length = content.getInt();
+            content.getInt(); // checksum, checked by validLength
+            ByteBuffer record = content.slice(content.position(), length);
+            content.position(content.position() + length);
+            try {
+                apply(record, byId);
+            } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | DateTimeException e) {
+                throw new IOException("Corrupt journal record", e);
+            }
+        }
+        return new ArrayList<>(byId.values());
+    }
+
+    private static void apply(ByteBuffer record, Map<Integer, Project> projects) {
+        byte type = record.get();
+        if (type == PROJECT_ADDED) {
+            Project project = ProjectCodec.decodeHeader(record);
+            projects.putIfAbsent(project.getId(), project);
+        } else if (type == PROJECT_REMOVED) {
+            projects.remove(record.getInt());
+        } else if (type == TASK_PUT) {
+            Project project = projects.get(record.getInt());
+            int id = record.getInt();
+            String description = ProjectCodec.readString(record);
+            byte prio = record.get();
+            byte state = record.get();
+            String takenBy = ProjectCodec.readString(record);
+            LocalDate lastUpdate = ProjectCodec.readDate(record);
+            if (project != null)
+                project.restoreTask(id, description, prio < 0 ? null : PRIOS[prio],
+                        state < 0 ? null : STATES[state], takenBy, lastUpdate);
+        } else if (type == TASK_REMOVED) {
+            Project project = projects.get(record.getInt());
+            int id = record.getInt();
+            Task task = project == null ? null : project.getTaskById(id);
+            if (task != null)
+                project.removeTask(task);
+        }
+    }
+
+    /**
+     * Returns the position where the complete records at the start of the buffer end, checking every checksum.
+     * The buffer position is not changed.
+     */
+    private static int validLength(ByteBuffer content) {
+        ByteBuffer in = content.duplicate();
+        CRC32 crc = new CRC32();
+        int end = in.position();
+        while (in.remaining() >= RECORD_HEADER_SIZE) {
+            int length = in.getInt();
+            int checksum = in.getInt();
+            if (length <= 0 || length > in.remaining())
+                break;
+            crc.reset();
+            crc.update(in.slice(in.position(), length));
+            if ((int) crc.getValue() != checksum)
+                break;
+            in.position(in.position() + length);
+            end = in.position();
+        }
+        return end;
+    }
+
+    /**
+     * Returns the ids of the projects changed by the records in the buffer, which must all be complete.
+     */
+    private static Set<Integer> changedProjects(ByteBuffer content) {
+        Set<Integer> ids = new HashSet<>();
+        ByteBuffer in = content.duplicate();
+        while (in.hasRemaining()) {
+            int length = in.getInt();
+            in.getInt(); // checksum
+            // every record starts with its type and the id of its project
+            ids.add(in.getInt(in.position() + 1));
+            in.position(in.position() + length);
+        }
+        return ids;
+    }
+
+    private synchronized void append(Project project, byte type, RecordWriter writer) {
+        changed.add(project.getId());
+        // the next checkpoint saves the project from the application instead
+        if (broken || closed)
+            return;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeByte(type);
+                writer.write(out);
+            }
+            byte[] payload = bytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.length);
+            record.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            appended++;
+            if (channel.size() > compactThreshold)
+                queueCheckpoint();
+        } catch (IOException e) {
+            markBroken(e);
+        }
+    }
+
+    /**
+     * Stops appending records until a checkpoint has saved the changes, and queues that checkpoint.
+     */
+    private synchronized void markBroken(IOException e) {
+        broken = true;
+        failure = e;
+        queueCheckpoint();
+    }
+
+    private synchronized void queueCheckpoint() {
+        if (checkpointQueued || autosaver.isShutdown())
+            return;
+        checkpointQueued = true;
+        autosaver.execute(this::checkpointInBackground);
+    }
+
+    private void syncInBackground() {
+        try {
+            sync();
+        } catch (IOException e) {
+            // the journal is broken, the queued checkpoint tries again
+        }
+    }
+
+    private void checkpointInBackground() {
+        synchronized (this) {
+            checkpointQueued = false;
+        }
+        try {
+            checkpoint();
+        } catch (IOException | UncheckedIOException e) {
+            // the changes are still in the journal, the next checkpoint tries again
+        }
+    }
+
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
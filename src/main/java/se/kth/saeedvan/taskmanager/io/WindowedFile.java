@@ -0,0 +1,83 @@
+package se.kth.saeedvan.taskmanager.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A file opened for reading, addressed with {@code long} positions, that is either mapped into memory
+ * or read into buffers on the heap.
+ * <p>
+ * A single {@link ByteBuffer} holds at most 2 GB, so the file is accessed through windows, and a new window
+ * is mapped or read when a read falls outside the current one. Reading through the file from start to end
+ * only maps or reads each part once. A window stays in memory as long as a buffer returned by
+ * {@link #slice(long, int)} refers to it, also after the channel has been closed. A mapped file can not be
+ * replaced on every platform while it is mapped, so files that are replaced soon after they are read
+ * should be read into the heap.
+ */
+final class WindowedFile {
+    static final int MAX_MAPPING = 1 << 30;
+    static final int MAX_READ = 1 << 26;
+
+    private final FileChannel channel;
+    private final boolean mapped;
+    private final long size;
+    private ByteBuffer window;
+    private long windowStart;
+
+    /**
+     * @param channel the channel of the file, positioned anywhere
+     * @param mapped if the file is mapped into memory, otherwise it is read into buffers on the heap
+     * @throws IOException if the file could not be mapped or read
+     */
+    WindowedFile(FileChannel channel, boolean mapped) throws IOException {
+        this.channel = channel;
+        this.mapped = mapped;
+        this.size = channel.size();
+        this.window = load(0, 0);
+        this.windowStart = 0;
+    }
+
+    long size() {
+        return size;
+    }
+
+    int getInt(long position) throws IOException {
+        return window(position, 4).getInt((int) (position - windowStart));
+    }
+
+    /**
+     * Returns a buffer over {@code length} bytes of the file from {@code position}.
+     * The returned buffer is independent of other buffers returned by this method.
+     *
+     * @param position the position of the first byte
+     * @param length the number of bytes
+     * @return a buffer over the bytes
+     * @throws IOException if the file could not be mapped or read
+     */
+    ByteBuffer slice(long position, int length) throws IOException {
+        return window(position, length).slice((int) (position - windowStart), length);
+    }
+
+    private ByteBuffer window(long position, int length) throws IOException {
+        if (position < 0 || length < 0 || position + length > size)
+            throw new IOException("Read outside of the file at " + position);
+        if (position < windowStart || position + length > windowStart + window.capacity()) {
+            window = load(position, length);
+            windowStart = position;
+        }
+        return window;
+    }
+
+    private ByteBuffer load(long position, int length) throws IOException {
+        if (mapped)
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, Math.max(length, Math.min(size - position, MAX_MAPPING)));
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(length, Math.min(size - position, MAX_READ)));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new EOFException("File ended at " + (position + buffer.position()));
+        }
+        return buffer.clear();
+    }
+}
@@ -0,0 +1,125 @@
+package se.kth.saeedvan.taskmanager.load;
+
+import se.kth.saeedvan.taskmanager.server.Json;
+import se.kth.saeedvan.taskmanager.server.TaskServer;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Makes the operations of a workload on a {@link TaskServer} over HTTP, which measures what a user
+ * of the server would see, including the network and the JSON.
+ */
+public class HttpTarget implements ITarget {
+    private final URI base;
+    private final ExecutorService executor;
+    private final HttpClient client;
+    private int[] projectIds;
+
+    /**
+     * @param base the address of the server, such as {@code http://localhost:8080}
+     */
+    public HttpTarget(URI base) {
+        this.base = base;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(executor).build();
+    }
+
+    /**
+     * Adds the projects of the workload to the server. The server must not have projects with their titles,
+     * so a workload is only set up once on a server, another seed gives other titles.
+     *
+     * @param workload the workload
+     * @throws IOException if the server could not be reached or did not add a project or task
+     * @throws InterruptedException if interrupted while waiting for the server
+     */
+    @Override
+    public void setUp(Workload workload) throws IOException, InterruptedException {
+        projectIds = new int[workload.getProjects()];
+        for (int i = 0; i < projectIds.length; i++) {
+            Map<String, Object> project = new LinkedHashMap<>();
+            project.put("title", workload.getProjectTitle(i));
+            project.put("description", "Added by the load driver");
+            HttpResponse<String> response = send("POST", "/projects", project);
+            if (response.statusCode() != 201)
+                throw failed(response);
+            projectIds[i] = ((Number) Json.readObject(response.body()).get("id")).intValue();
+            for (Step step : workload.getInitialTasks(i)) {
+                if (run(step) != Outcome.OK)
+                    throw new IOException("Could not add the tasks of " + workload.getProjectTitle(i));
+            }
+        }
+    }
+
+    @Override
+    public Outcome run(Step step) throws IOException, InterruptedException {
+        String tasks = "/projects/" + projectIds[step.project()] + "/tasks";
+        Map<String, Object> request = new LinkedHashMap<>();
+        HttpResponse<String> response;
+        switch (step.operation()) {
+            case ADD_TASK:
+                request.put("description", step.text());
+                request.put("prio", step.prio());
+                response = send("POST", tasks, request);
+                break;
+            case QUERY:
+                response = send("GET", tasks + "?limit=" + InProcessTarget.QUERY_LIMIT + query(step), null);
+                break;
+            default:
+                request.put("transition", switch (step.operation()) {
+                    case CLAIM -> "TAKE";
+                    case START -> "START";
+                    default -> "FINISH";
+                });
+                request.put("takenBy", step.user());
+                response = send("POST", tasks + "/" + step.task() + "/transitions", request);
+        }
+        int status = response.statusCode();
+        if (status == 409)
+            return Outcome.CONFLICT;
+        if (status / 100 != 2)
+            throw failed(response);
+        return Outcome.OK;
+    }
+
+    private static String query(Step step) {
+        return switch (step.query()) {
+            case PRIO -> "&prio=" + step.prio();
+            case TAKEN_BY -> "&takenBy=" + URLEncoder.encode(step.user(), StandardCharsets.UTF_8);
+            case WORDS -> "&q=" + URLEncoder.encode(step.text(), StandardCharsets.UTF_8);
+            case NOT_DONE -> "&notDone=true";
+        };
+    }
+
+    private HttpResponse<String> send(String method, String path, Map<String, Object> body)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(base.resolve(path));
+        if (body == null) {
+            builder.method(method, HttpRequest.BodyPublishers.noBody());
+        } else {
+            builder.header("Content-Type", "application/json");
+            builder.method(method, HttpRequest.BodyPublishers.ofString(Json.write(body), StandardCharsets.UTF_8));
+        }
+        return client.send(builder.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+
+    private static IOException failed(HttpResponse<String> response) {
+        return new IOException(response.request().method() + " " + response.request().uri().getPath()
+                + " answered " + response.statusCode() + ": " + response.body());
+    }
+
+    @Override
+    public void close() {
+        client.close();
+        executor.close();
+    }
+}
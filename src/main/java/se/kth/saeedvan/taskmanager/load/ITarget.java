@@ -0,0 +1,29 @@
+package se.kth.saeedvan.taskmanager.load;
+
+/**
+ * What a {@link LoadDriver} makes the operations of a workload on.
+ */
+public interface ITarget extends AutoCloseable {
+    /**
+     * Adds the projects and tasks the workload starts from. Called once, before any operation.
+     *
+     * @param workload the workload
+     * @throws Exception if the projects could not be added
+     */
+    public void setUp(Workload workload) throws Exception;
+
+    /**
+     * Makes an operation. Called from many threads at the same time.
+     *
+     * @param step the operation to make
+     * @return how the operation ended
+     * @throws Exception if the operation failed
+     */
+    public Outcome run(Step step) throws Exception;
+
+    /**
+     * Releases what the target holds, such as connections. The projects are left as they are.
+     */
+    @Override
+    public void close();
+}
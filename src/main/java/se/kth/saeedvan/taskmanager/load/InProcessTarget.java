@@ -0,0 +1,80 @@
+package se.kth.saeedvan.taskmanager.load;
+
+import se.kth.saeedvan.taskmanager.model.Project;
+import se.kth.saeedvan.taskmanager.model.ProjectsManager;
+import se.kth.saeedvan.taskmanager.model.Task;
+import se.kth.saeedvan.taskmanager.model.exceptions.TaskConflictException;
+import se.kth.saeedvan.taskmanager.model.matcher.DescriptionMatcher;
+import se.kth.saeedvan.taskmanager.model.matcher.ITaskMatcher;
+import se.kth.saeedvan.taskmanager.model.matcher.NotDoneMatcher;
+import se.kth.saeedvan.taskmanager.model.matcher.PrioMatcher;
+import se.kth.saeedvan.taskmanager.model.matcher.TakenByMatcher;
+
+/**
+ * Makes the operations of a workload directly on a {@link ProjectsManager} in this process,
+ * which measures the model without the cost of a network.
+ */
+public class InProcessTarget implements ITarget {
+    /**
+     * The number of tasks a query asks for, as a page of a list would.
+     */
+    public static final int QUERY_LIMIT = 20;
+
+    private final ProjectsManager manager;
+    private Project[] projects;
+
+    /**
+     * @param manager the manager to add the projects of the workload to
+     */
+    public InProcessTarget(ProjectsManager manager) {
+        this.manager = manager;
+    }
+
+    @Override
+    public void setUp(Workload workload) {
+        projects = new Project[workload.getProjects()];
+        for (int i = 0; i < projects.length; i++) {
+            projects[i] = manager.addProject(workload.getProjectTitle(i), "Added by the load driver");
+            for (Step step : workload.getInitialTasks(i)) {
+                projects[i].addTask(step.text(), step.prio());
+            }
+        }
+    }
+
+    @Override
+    public Outcome run(Step step) {
+        Project project = projects[step.project()];
+        try {
+            switch (step.operation()) {
+                case ADD_TASK -> project.addTask(step.text(), step.prio());
+                case CLAIM -> task(project, step).take(step.user());
+                case START -> task(project, step).start();
+                case FINISH -> task(project, step).finish();
+                case QUERY -> project.findTasks(matcher(step), QUERY_LIMIT);
+            }
+        } catch (TaskConflictException e) {
+            return Outcome.CONFLICT;
+        }
+        return Outcome.OK;
+    }
+
+    private static Task task(Project project, Step step) {
+        Task task = project.getTaskById(step.task());
+        if (task == null)
+            throw new IllegalStateException("No task " + step.task() + " in " + project.getTitle());
+        return task;
+    }
+
+    private static ITaskMatcher matcher(Step step) {
+        return switch (step.query()) {
+            case PRIO -> new PrioMatcher(step.prio());
+            case TAKEN_BY -> new TakenByMatcher(step.user());
+            case WORDS -> new DescriptionMatcher(step.text());
+            case NOT_DONE -> new NotDoneMatcher();
+        };
+    }
+
+    @Override
+    public void close() {
+    }
+}
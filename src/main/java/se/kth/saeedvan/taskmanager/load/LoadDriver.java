@@ -0,0 +1,98 @@
+package se.kth.saeedvan.taskmanager.load;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a {@link Workload} on an {@link ITarget} from many clients at the same time, at a target rate,
+ * and measures the latency of each operation.
+ * <p>
+ * Each client runs on its own virtual thread and makes its operations at fixed times, spread evenly so that
+ * all clients together make {@code rate} operations per second. The latency of an operation is measured from
+ * the time it was due, not from when it was sent, so when the target falls behind, the time operations wait
+ * for earlier ones is counted as well, as a user would see it. Operations in the warm-up are made but not counted.
+ */
+public class LoadDriver {
+    private final ITarget target;
+    private final Workload workload;
+    private final int clients;
+    private final double rate;
+
+    /**
+     * @param target what to make the operations on
+     * @param workload the operations
+     * @param clients the number of clients
+     * @param rate the operations per second of all clients together, or {@code 0} to make them as fast as the
+     *             target allows
+     */
+    public LoadDriver(ITarget target, Workload workload, int clients, double rate) {
+        if (clients < 1 || rate < 0)
+            throw new IllegalArgumentException("Needs at least one client and a rate of at least 0");
+        this.target = target;
+        this.workload = workload;
+        this.clients = clients;
+        this.rate = rate;
+    }
+
+    /**
+     * Sets up the target and runs the workload. Failed operations are counted in the report and
+     * the run goes on.
+     *
+     * @param warmup how long to run before counting
+     * @param duration how long to count
+     * @return the counts and latencies
+     * @throws Exception if the target could not be set up
+     */
+    public LoadReport run(Duration warmup, Duration duration) throws Exception {
+        target.setUp(workload);
+        LoadReport report = new LoadReport();
+        // nanoseconds between the operations of a client
+        long interval = rate == 0 ? 0 : (long) (clients * 1e9 / rate);
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                Workload.Client client = workload.getClient(i);
+                // the clients take turns instead of all starting at once
+                long first = start + interval * i / clients;
+                executor.execute(() -> runClient(client, first, interval, measureFrom, end, report));
+            }
+        }
+        report.setElapsedNanos(Math.max(System.nanoTime(), end) - measureFrom);
+        return report;
+    }
+
+    private void runClient(Workload.Client client, long first, long interval, long measureFrom, long end,
+                           LoadReport report) {
+        for (long k = 0; ; k++) {
+            long due = interval == 0 ? System.nanoTime() : first + k * interval;
+            if (due >= end)
+                return;
+            long now;
+            while ((now = System.nanoTime()) < due) {
+                LockSupport.parkNanos(due - now);
+            }
+            Step step = client.next();
+            Outcome outcome = null;
+            Exception error = null;
+            try {
+                outcome = target.run(step);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                error = e;
+            }
+            if (due < measureFrom)
+                continue;
+            long latency = System.nanoTime() - due;
+            if (error == null)
+                report.record(step.operation(), latency, outcome);
+            else
+                report.recordError(step.operation(), latency, error);
+        }
+    }
+}
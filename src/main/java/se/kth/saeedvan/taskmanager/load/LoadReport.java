@@ -0,0 +1,134 @@
+package se.kth.saeedvan.taskmanager.load;
+
+import se.kth.saeedvan.taskmanager.metrics.LatencyHistogram;
+
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts and latencies of the operations of a run of a {@link LoadDriver}, filled by the clients while they run.
+ */
+public class LoadReport {
+    private static final double MILLIS = 1_000_000.0;
+
+    private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> conflicts = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    private final AtomicReference<Exception> firstError = new AtomicReference<>();
+    private volatile long elapsedNanos;
+
+    LoadReport() {
+        // filled before the clients start, only read afterwards
+        for (Operation op : Operation.values()) {
+            latencies.put(op, new LatencyHistogram());
+            conflicts.put(op, new LongAdder());
+            errors.put(op, new LongAdder());
+        }
+    }
+
+    void record(Operation op, long latencyNanos, Outcome outcome) {
+        latencies.get(op).record(latencyNanos);
+        if (outcome == Outcome.CONFLICT)
+            conflicts.get(op).increment();
+    }
+
+    void recordError(Operation op, long latencyNanos, Exception e) {
+        latencies.get(op).record(latencyNanos);
+        errors.get(op).increment();
+        firstError.compareAndSet(null, e);
+    }
+
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @param op the operation
+     * @return the latencies of the operation, from when it was due to when it ended
+     */
+    public LatencyHistogram getLatencies(Operation op) {
+        return latencies.get(op);
+    }
+
+    /**
+     * @return the latencies of all operations together
+     */
+    public LatencyHistogram getTotalLatencies() {
+        LatencyHistogram total = new LatencyHistogram();
+        for (LatencyHistogram h : latencies.values()) {
+            total.add(h);
+        }
+        return total;
+    }
+
+    /**
+     * @param op the operation
+     * @return the number of times the operation was refused because of the state of the task
+     */
+    public long getConflicts(Operation op) {
+        return conflicts.get(op).sum();
+    }
+
+    /**
+     * @param op the operation
+     * @return the number of times the operation failed
+     */
+    public long getErrors(Operation op) {
+        return errors.get(op).sum();
+    }
+
+    /**
+     * @return the first failure of an operation, or {@code null} if none failed
+     */
+    public Exception getFirstError() {
+        return firstError.get();
+    }
+
+    /**
+     * @return the operations measured per second
+     */
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : getTotalLatencies().getCount() * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Prints the throughput and, for each operation, the counts and the latency percentiles in milliseconds.
+     *
+     * @param out where to print
+     */
+    public void print(PrintStream out) {
+        out.format("%-8s %9s %9s %7s %9s %9s %9s %9s %9s %9s%n", "op", "count", "conflict", "error",
+                "mean ms", "p50", "p90", "p99", "p99.9", "max");
+        for (Operation op : Operation.values()) {
+            printRow(out, op.toString(), latencies.get(op), getConflicts(op), getErrors(op));
+        }
+        long conflictSum = 0;
+        long errorSum = 0;
+        for (Operation op : Operation.values()) {
+            conflictSum += getConflicts(op);
+            errorSum += getErrors(op);
+        }
+        printRow(out, "all", getTotalLatencies(), conflictSum, errorSum);
+        out.format("%.1f operations per second over %.1f s%n", getThroughput(), elapsedNanos / 1e9);
+        if (getFirstError() != null)
+            out.println("First error: " + getFirstError());
+    }
+
+    private static void printRow(PrintStream out, String name, LatencyHistogram h, long conflicts, long errors) {
+        out.format("%-8s %9d %9d %7d %9.3f %9.3f %9.3f %9.3f %9.3f %9.3f%n", name, h.getCount(), conflicts, errors,
+                h.getMean() / MILLIS, h.getValueAtPercentile(50) / MILLIS, h.getValueAtPercentile(90) / MILLIS,
+                h.getValueAtPercentile(99) / MILLIS, h.getValueAtPercentile(99.9) / MILLIS, h.getMax() / MILLIS);
+    }
+
+    /**
+     * Prints the distribution of the latencies of all operations in milliseconds, in the format of HdrHistogram.
+     *
+     * @param out where to print
+     */
+    public void printDistribution(PrintStream out) {
+        getTotalLatencies().printDistribution(out, MILLIS);
+    }
+}
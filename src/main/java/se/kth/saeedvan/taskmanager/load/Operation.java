@@ -0,0 +1,32 @@
+package se.kth.saeedvan.taskmanager.load;
+
+/**
+ * The kinds of operations of a {@link Workload}.
+ */
+public enum Operation {
+    ADD_TASK("add"), CLAIM("claim"), START("start"), FINISH("finish"), QUERY("query");
+
+    private final String str;
+
+    private Operation(String str) {
+        this.str = str;
+    }
+
+    /**
+     * @param str the name of an operation, as returned by {@link #toString()}
+     * @return the operation with the name
+     * @throws IllegalArgumentException if there is no operation with the name
+     */
+    public static Operation fromString(String str) {
+        for (Operation op : values()) {
+            if (op.str.equals(str))
+                return op;
+        }
+        throw new IllegalArgumentException("Unknown operation " + str);
+    }
+
+    @Override
+    public String toString() {
+        return str;
+    }
+}
@@ -0,0 +1,15 @@
+package se.kth.saeedvan.taskmanager.load;
+
+/**
+ * How an operation ended. Operations that fail with an exception are counted as errors instead.
+ */
+public enum Outcome {
+    /**
+     * The operation was made.
+     */
+    OK,
+    /**
+     * The operation was refused because of the state of the task, for example because another user took it first.
+     */
+    CONFLICT
+}
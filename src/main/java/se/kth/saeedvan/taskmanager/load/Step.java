@@ -0,0 +1,23 @@
+package se.kth.saeedvan.taskmanager.load;
+
+import se.kth.saeedvan.taskmanager.model.TaskPrio;
+
+/**
+ * One operation of a {@link Workload}, with what it is made on.
+ *
+ * @param operation the operation
+ * @param project the index of the project, from {@code 0}, in the projects set up by the target
+ * @param task the id of the task, for claiming, starting and finishing
+ * @param prio the priority of an added task or the priority to find
+ * @param user the user claiming the task or whose tasks to find
+ * @param text the description of an added task or the words to find
+ * @param query what to find, for {@link Operation#QUERY}
+ */
+public record Step(Operation operation, int project, int task, TaskPrio prio, String user, String text, Query query) {
+    /**
+     * The kinds of queries, by the matcher they use.
+     */
+    public enum Query {
+        NOT_DONE, PRIO, TAKEN_BY, WORDS
+    }
+}
@@ -0,0 +1,212 @@
+package se.kth.saeedvan.taskmanager.load;
+
+import se.kth.saeedvan.taskmanager.model.TaskPrio;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Deterministic mix of operations on a number of projects, made by many clients at the same time.
+ * <p>
+ * The projects and tasks the workload starts from, and the operations of each client, only depend on the seed,
+ * so the same workload can be run again, in-process or against a server, and compared. Each client acts as
+ * one user, who claims tasks, starts the tasks it claimed and finishes the tasks it started, so the workflow
+ * goes through its steps as it would with real users. A client that has nothing to start or finish claims a task
+ * instead. Claims pick any task of the project, so clients race for the same tasks and some claims are refused.
+ * A few projects get most of the operations, as the projects of the most active teams would.
+ */
+public class Workload {
+    /**
+     * The default weights of the operations.
+     */
+    public static final String DEFAULT_MIX = "add=10,claim=30,start=20,finish=15,query=25";
+
+    private static final String[] WORDS = {"fix", "login", "page", "report", "bug", "update", "test", "deploy",
+            "review", "docs", "api", "search", "export", "import", "cache", "backup", "alert", "release"};
+    // claimed or started tasks a client remembers, the oldest are forgotten
+    private static final int MAX_REMEMBERED = 1000;
+
+    private final long seed;
+    private final int projects;
+    private final int tasksPerProject;
+    private final int users;
+    private final Map<Operation, Integer> weights;
+    private final int totalWeight;
+
+    /**
+     * @param seed the seed of all random choices
+     * @param projects the number of projects
+     * @param tasksPerProject the number of tasks each project starts with
+     * @param users the number of distinct users, the clients share them if there are more clients
+     * @param mix the weights of the operations, as {@code name=weight} separated by commas, see {@link #DEFAULT_MIX}
+     * @throws IllegalArgumentException if a number is out of range or the mix can not be read
+     */
+    public Workload(long seed, int projects, int tasksPerProject, int users, String mix) {
+        if (projects < 1 || tasksPerProject < 1 || users < 1)
+            throw new IllegalArgumentException("Projects, tasks and users must be at least 1");
+        this.seed = seed;
+        this.projects = projects;
+        this.tasksPerProject = tasksPerProject;
+        this.users = users;
+        this.weights = parseMix(mix);
+        int total = 0;
+        for (int w : weights.values()) {
+            total += w;
+        }
+        if (total == 0)
+            throw new IllegalArgumentException("The mix has no operations");
+        this.totalWeight = total;
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String part : mix.split(",")) {
+            String[] nameWeight = part.trim().split("=");
+            if (nameWeight.length != 2)
+                throw new IllegalArgumentException("Expected name=weight in the mix, not " + part);
+            int weight = Integer.parseInt(nameWeight[1].trim());
+            if (weight < 0)
+                throw new IllegalArgumentException("Weight of " + nameWeight[0] + " is negative");
+            weights.put(Operation.fromString(nameWeight[0].trim()), weight);
+        }
+        return weights;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getProjects() {
+        return projects;
+    }
+
+    public int getTasksPerProject() {
+        return tasksPerProject;
+    }
+
+    /**
+     * @param project the index of the project, from {@code 0}
+     * @return the title of the project
+     */
+    public String getProjectTitle(int project) {
+        return "Load " + seed + " project " + (project + 1);
+    }
+
+    /**
+     * @param project the index of the project, from {@code 0}
+     * @return the tasks the project starts with, as {@link Operation#ADD_TASK} steps, which get the ids
+     * from {@code 1} in this order
+     */
+    public List<Step> getInitialTasks(int project) {
+        Random random = new Random(seed * 31 + project);
+        List<Step> tasks = new ArrayList<>(tasksPerProject);
+        for (int i = 0; i < tasksPerProject; i++) {
+            tasks.add(addTask(random, project));
+        }
+        return Collections.unmodifiableList(tasks);
+    }
+
+    /**
+     * @param index the index of the client, from {@code 0}
+     * @return the operations of the client
+     */
+    public Client getClient(int index) {
+        return new Client(index);
+    }
+
+    private Step addTask(Random random, int project) {
+        String description = word(random) + " " + word(random) + " " + (random.nextInt(1000) + 1);
+        return new Step(Operation.ADD_TASK, project, 0, prio(random), null, description, null);
+    }
+
+    private static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private static TaskPrio prio(Random random) {
+        TaskPrio[] prios = TaskPrio.values();
+        return prios[random.nextInt(prios.length)];
+    }
+
+    private static String user(int index) {
+        return "user" + (index + 1);
+    }
+
+    /**
+     * The operations of one client, one at a time. A client is used by one thread.
+     */
+    public class Client {
+        private final Random random;
+        private final String user;
+        private final Deque<Step> claimed = new ArrayDeque<>();
+        private final Deque<Step> started = new ArrayDeque<>();
+
+        private Client(int index) {
+            this.random = new Random(seed ^ (0x9E3779B97F4A7C15L * (index + 1)));
+            this.user = user(index % users);
+        }
+
+        /**
+         * @return the next operation of the client
+         */
+        public Step next() {
+            int project = project();
+            Operation operation = operation();
+            if (operation == Operation.ADD_TASK) {
+                return addTask(random, project);
+            } else if (operation == Operation.QUERY) {
+                return query(project);
+            } else if (operation == Operation.FINISH && !started.isEmpty()) {
+                Step s = started.pollFirst();
+                return new Step(Operation.FINISH, s.project(), s.task(), null, user, null, null);
+            } else if ((operation == Operation.FINISH || operation == Operation.START) && !claimed.isEmpty()) {
+                // a finish with nothing started starts something instead
+                Step s = claimed.pollFirst();
+                return remember(started, new Step(Operation.START, s.project(), s.task(), null, user, null, null));
+            } else {
+                // a start or finish with nothing claimed claims something instead
+                int task = random.nextInt(tasksPerProject) + 1;
+                return remember(claimed, new Step(Operation.CLAIM, project, task, null, user, null, null));
+            }
+        }
+
+        private Step query(int project) {
+            Step.Query query = Step.Query.values()[random.nextInt(Step.Query.values().length)];
+            return switch (query) {
+                case PRIO -> new Step(Operation.QUERY, project, 0, prio(random), null, null, query);
+                case TAKEN_BY -> new Step(Operation.QUERY, project, 0, null, user(random.nextInt(users)), null, query);
+                case WORDS -> new Step(Operation.QUERY, project, 0, null, null, word(random), query);
+                default -> new Step(Operation.QUERY, project, 0, null, null, null, query);
+            };
+        }
+
+        private Operation operation() {
+            int w = random.nextInt(totalWeight);
+            for (Map.Entry<Operation, Integer> e : weights.entrySet()) {
+                w -= e.getValue();
+                if (w < 0)
+                    return e.getKey();
+            }
+            throw new IllegalStateException("Weights do not add up");
+        }
+
+        // the square makes low indexes more likely, so the first projects are the busiest
+        private int project() {
+            double r = random.nextDouble();
+            return (int) (r * r * projects);
+        }
+
+        private Step remember(Deque<Step> steps, Step step) {
+            if (steps.size() == MAX_REMEMBERED)
+                steps.pollFirst();
+            steps.addLast(step);
+            return step;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package se.kth.saeedvan.taskmanager.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event of writing a data file of projects.
+ */
+@Name("se.kth.saeedvan.taskmanager.FileSave")
+@Label("Projects File Save")
+@Description("Projects written to a file by ProjectsFileIO")
+@Category({"Task Manager", "File"})
+public class FileSaveEvent extends Event {
+    @Label("Operation")
+    @Description("Method of ProjectsFileIO")
+    String operation;
+
+    @Label("Path")
+    String path;
+
+    @Label("Projects")
+    int projects;
+
+    @Label("Loaded Tasks")
+    @Description("Tasks of the projects whose tasks are loaded, the tasks of mapped projects are not counted")
+    long tasks;
+
+    @Label("Bytes Written")
+    @DataAmount
+    long bytes;
+
+    /**
+     * Sets the fields and commits the event. Call only if {@link #shouldCommit()}.
+     *
+     * @param operation the operation
+     * @param path the path of the file
+     * @param projects the number of projects
+     * @param tasks the number of tasks in the projects that are loaded
+     * @param bytes the number of bytes written
+     */
+    public void commit(TimedOperation operation, String path, int projects, long tasks, long bytes) {
+        this.operation = operation.toString();
+        this.path = path;
+        this.projects = projects;
+        this.tasks = tasks;
+        this.bytes = bytes;
+        commit();
+    }
+}
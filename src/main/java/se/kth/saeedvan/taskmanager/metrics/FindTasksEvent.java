@@ -0,0 +1,51 @@
+package se.kth.saeedvan.taskmanager.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event of a search for tasks in a project. Only searches of at least {@code 1 ms} are recorded by default,
+ * set a lower threshold in the recording settings to see all of them.
+ */
+@Name("se.kth.saeedvan.taskmanager.FindTasks")
+@Label("Find Tasks")
+@Description("Search for tasks in one project with Project.findTasks")
+@Category({"Task Manager", "Model"})
+@Threshold("1 ms")
+@StackTrace(false)
+public class FindTasksEvent extends Event {
+    @Label("Project Id")
+    int project;
+
+    @Label("Matcher")
+    @Description("Class of the matcher of the search")
+    String matcher;
+
+    @Label("Limit")
+    int limit;
+
+    @Label("Results")
+    @Description("Number of tasks found")
+    int results;
+
+    /**
+     * Sets the fields and commits the event. Call only if {@link #shouldCommit()}.
+     *
+     * @param project the id of the project searched
+     * @param matcher the class of the matcher
+     * @param limit the most tasks asked for
+     * @param results the number of tasks found
+     */
+    public void commit(int project, Class<?> matcher, int limit, int results) {
+        this.project = project;
+        this.matcher = matcher.getSimpleName();
+        this.limit = limit;
+        this.results = results;
+        commit();
+    }
+}
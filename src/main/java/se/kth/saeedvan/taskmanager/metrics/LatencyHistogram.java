@@ -0,0 +1,161 @@
+package se.kth.saeedvan.taskmanager.metrics;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies in nanoseconds, in the style of HdrHistogram, that many threads can record into
+ * without locking and without allocating.
+ * <p>
+ * Values are counted in buckets whose width grows with the value: each range from a power of two to the next
+ * is split into {@value #SUB_BUCKETS} buckets of equal width, so every value is known to within about 1 %
+ * whatever its size, with a fixed number of counters. Values below {@code 2 * }{@value #SUB_BUCKETS}
+ * are counted exactly.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // enough buckets for all non-negative long values
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+    // percentiles of the distribution printed between each halving of the remaining share
+    private static final int TICKS_PER_HALF = 5;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Counts a value.
+     *
+     * @param nanos the value, negative values are counted as {@code 0}
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.incrementAndGet(indexOf(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Counts all values of another histogram in this one.
+     *
+     * @param other the histogram to add
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long c = other.counts.get(i);
+            if (c != 0)
+                counts.addAndGet(i, c);
+        }
+        count.addAndGet(other.count.get());
+        sum.addAndGet(other.sum.get());
+        max.accumulateAndGet(other.max.get(), Math::max);
+    }
+
+    /**
+     * Forgets all values counted. Values counted while this method runs may be partly kept.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /**
+     * @return the number of values counted
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return the largest value counted, or {@code 0} if none has been
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return the mean of the values counted, or {@code 0} if none has been
+     */
+    public double getMean() {
+        long c = count.get();
+        return c == 0 ? 0 : (double) sum.get() / c;
+    }
+
+    /**
+     * Returns the value that the given share of the values are at or below, as the highest value
+     * of its bucket. Values counted while this method runs may or may not be included.
+     *
+     * @param percentile the share of the values, from {@code 0} to {@code 100}
+     * @return the value at the percentile, or {@code 0} if no value has been counted
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = count.get();
+        if (total == 0)
+            return 0;
+        long wanted = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= wanted)
+                return Math.min(highestValueOf(i), max.get());
+        }
+        return max.get();
+    }
+
+    /**
+     * Prints the distribution of the values in the text format of HdrHistogram, which its plotting tools read:
+     * the value, the percentile as a fraction, the number of values at or below it and {@code 1/(1-percentile)}.
+     * The percentiles get closer towards 100 %, a few for each halving of the values above them.
+     *
+     * @param out where to print
+     * @param unitNanos the nanoseconds of the unit to print the values in, {@code 1_000_000} for milliseconds
+     */
+    public void printDistribution(PrintStream out, double unitNanos) {
+        long total = count.get();
+        out.format("%12s %14s %10s %14s%n%n", "Value", "Percentile", "TotalCount", "1/(1-Percentile)");
+        double percentile = 0;
+        while (total > 0) {
+            long value = getValueAtPercentile(percentile);
+            long atOrBelow = countAtOrBelow(value);
+            double fraction = (double) atOrBelow / total;
+            if (atOrBelow == total) {
+                out.format("%12.3f %2.12f %10d%n", value / unitNanos, 1.0, total);
+                break;
+            }
+            out.format("%12.3f %2.12f %10d %14.2f%n", value / unitNanos, fraction, atOrBelow, 1 / (1 - fraction));
+            // the same number of ticks for each halving of the share of values above
+            long halvings = (long) (Math.log(100 / (100 - percentile)) / Math.log(2));
+            percentile += 100.0 / (TICKS_PER_HALF * Math.pow(2, halvings + 1));
+        }
+        out.format("#[Mean    = %12.3f, Max        = %12.3f]%n", getMean() / unitNanos, getMax() / unitNanos);
+        out.format("#[Total count    = %12d]%n", total);
+    }
+
+    private long countAtOrBelow(long value) {
+        long seen = 0;
+        int last = indexOf(value);
+        for (int i = 0; i <= last; i++) {
+            seen += counts.get(i);
+        }
+        return seen;
+    }
+
+    static int indexOf(long value) {
+        int shift = Math.max(0, Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    static long highestValueOf(int index) {
+        int shift = Math.max(0, index / SUB_BUCKETS - 1);
+        long sub = index - (long) shift * SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+}
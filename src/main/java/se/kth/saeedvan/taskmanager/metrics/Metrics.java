@@ -0,0 +1,135 @@
+package se.kth.saeedvan.taskmanager.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Counts and times the calls of the operations of the model and of the data file, see {@link TimedOperation}.
+ * <p>
+ * An operation is timed with
+ * <pre>{@code
+ * long start = Metrics.start();
+ * try {
+ *     ...
+ * } finally {
+ *     Metrics.record(TimedOperation.PROJECT_FIND_TASKS, start);
+ * }
+ * }</pre>
+ * Timing takes two reads of the clock and a few atomic additions, without locks or allocation.
+ * Metrics are off unless the application runs with {@code -Dtaskmanager.metrics=true} or they are turned on
+ * with {@link #setEnabled(boolean)}, and when off an operation only reads the switch. They can be read and
+ * turned on and off from JMX, under {@value #DOMAIN}, once {@link #registerMBeans()} has been called.
+ */
+public final class Metrics {
+    /**
+     * The JMX domain of the MBeans.
+     */
+    public static final String DOMAIN = "se.kth.saeedvan.taskmanager";
+
+    // start time of an operation that is not timed
+    private static final long NOT_TIMED = 0;
+    private static final double MILLIS = 1_000_000.0;
+
+    private static volatile boolean enabled = Boolean.getBoolean("taskmanager.metrics");
+    private static final OperationMetrics[] OPERATIONS = new OperationMetrics[TimedOperation.values().length];
+
+    static {
+        for (TimedOperation op : TimedOperation.values()) {
+            OPERATIONS[op.ordinal()] = new OperationMetrics(op);
+        }
+    }
+
+    private Metrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns the metrics on or off. What has been counted is kept.
+     *
+     * @param enabled if the operations are timed from now on
+     */
+    public static void setEnabled(boolean enabled) {
+        Metrics.enabled = enabled;
+    }
+
+    /**
+     * @return the time an operation starts, to pass to {@link #record}, or a value that is not recorded
+     * if the metrics are off
+     */
+    public static long start() {
+        if (!enabled)
+            return NOT_TIMED;
+        long now = System.nanoTime();
+        // the clock may read 0, which would mean not timed
+        return now == NOT_TIMED ? NOT_TIMED + 1 : now;
+    }
+
+    /**
+     * Counts a call of an operation that ended now.
+     *
+     * @param operation the operation
+     * @param start what {@link #start()} returned when the call started
+     */
+    public static void record(TimedOperation operation, long start) {
+        if (start != NOT_TIMED)
+            OPERATIONS[operation.ordinal()].getLatencies().record(System.nanoTime() - start);
+    }
+
+    /**
+     * @param operation the operation
+     * @return the count and latencies of the operation
+     */
+    public static OperationMetrics get(TimedOperation operation) {
+        return OPERATIONS[operation.ordinal()];
+    }
+
+    /**
+     * Forgets the calls counted of all operations.
+     */
+    public static void reset() {
+        for (OperationMetrics m : OPERATIONS) {
+            m.reset();
+        }
+    }
+
+    /**
+     * Registers an MBean for each operation, and one that turns the metrics on and off, with the platform
+     * MBean server. Registering more than once has no effect.
+     *
+     * @throws JMException if an MBean could not be registered
+     */
+    public static synchronized void registerMBeans() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName control = new ObjectName(DOMAIN + ":type=Metrics");
+        if (server.isRegistered(control))
+            return;
+        for (OperationMetrics m : OPERATIONS) {
+            server.registerMBean(m, new ObjectName(DOMAIN + ":type=Operation,name=" + m.getOperation()));
+        }
+        server.registerMBean(new MetricsControl(), control);
+    }
+
+    /**
+     * Prints the count and the latency percentiles in milliseconds of each operation that has been called.
+     *
+     * @param out where to print
+     */
+    public static void print(PrintStream out) {
+        out.format("%-36s %9s %9s %9s %9s %9s %9s %9s%n", "operation", "count", "mean ms", "p50", "p90", "p99",
+                "p99.9", "max");
+        for (OperationMetrics m : OPERATIONS) {
+            LatencyHistogram h = m.getLatencies();
+            if (h.getCount() == 0)
+                continue;
+            out.format("%-36s %9d %9.3f %9.3f %9.3f %9.3f %9.3f %9.3f%n", m.getOperation(), h.getCount(),
+                    h.getMean() / MILLIS, h.getValueAtPercentile(50) / MILLIS, h.getValueAtPercentile(90) / MILLIS,
+                    h.getValueAtPercentile(99) / MILLIS, h.getValueAtPercentile(99.9) / MILLIS, h.getMax() / MILLIS);
+        }
+    }
+}
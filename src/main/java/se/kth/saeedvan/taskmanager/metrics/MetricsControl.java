@@ -0,0 +1,21 @@
+package se.kth.saeedvan.taskmanager.metrics;
+
+/**
+ * Turns {@link Metrics} on and off from JMX.
+ */
+class MetricsControl implements MetricsControlMBean {
+    @Override
+    public boolean isEnabled() {
+        return Metrics.isEnabled();
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        Metrics.setEnabled(enabled);
+    }
+
+    @Override
+    public void reset() {
+        Metrics.reset();
+    }
+}
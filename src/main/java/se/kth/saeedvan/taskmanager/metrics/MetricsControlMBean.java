@@ -0,0 +1,12 @@
+package se.kth.saeedvan.taskmanager.metrics;
+
+/**
+ * JMX switch of {@link Metrics}.
+ */
+public interface MetricsControlMBean {
+    public boolean isEnabled();
+
+    public void setEnabled(boolean enabled);
+
+    public void reset();
+}
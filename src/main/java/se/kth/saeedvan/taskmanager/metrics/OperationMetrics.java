@@ -0,0 +1,66 @@
+package se.kth.saeedvan.taskmanager.metrics;
+
+/**
+ * Count and latencies of the calls of one operation.
+ */
+public class OperationMetrics implements OperationMetricsMBean {
+    private static final double MILLIS = 1_000_000.0;
+
+    private final TimedOperation operation;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    OperationMetrics(TimedOperation operation) {
+        this.operation = operation;
+    }
+
+    public TimedOperation getOperation() {
+        return operation;
+    }
+
+    /**
+     * @return the latencies of the calls, in nanoseconds
+     */
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    @Override
+    public long getCount() {
+        return latencies.getCount();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return latencies.getMean() / MILLIS;
+    }
+
+    @Override
+    public double getMedianMillis() {
+        return latencies.getValueAtPercentile(50) / MILLIS;
+    }
+
+    @Override
+    public double get90thPercentileMillis() {
+        return latencies.getValueAtPercentile(90) / MILLIS;
+    }
+
+    @Override
+    public double get99thPercentileMillis() {
+        return latencies.getValueAtPercentile(99) / MILLIS;
+    }
+
+    @Override
+    public double get999thPercentileMillis() {
+        return latencies.getValueAtPercentile(99.9) / MILLIS;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return latencies.getMax() / MILLIS;
+    }
+
+    @Override
+    public void reset() {
+        latencies.reset();
+    }
+}
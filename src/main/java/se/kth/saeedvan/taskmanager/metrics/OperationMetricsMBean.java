@@ -0,0 +1,22 @@
+package se.kth.saeedvan.taskmanager.metrics;
+
+/**
+ * JMX view of the calls of one operation, see {@link OperationMetrics}. Times are in milliseconds.
+ */
+public interface OperationMetricsMBean {
+    public long getCount();
+
+    public double getMeanMillis();
+
+    public double getMedianMillis();
+
+    public double get90thPercentileMillis();
+
+    public double get99thPercentileMillis();
+
+    public double get999thPercentileMillis();
+
+    public double getMaxMillis();
+
+    public void reset();
+}
@@ -0,0 +1,35 @@
+package se.kth.saeedvan.taskmanager.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event of replacing all projects of a manager, as when the data file has been read.
+ */
+@Name("se.kth.saeedvan.taskmanager.SetProjects")
+@Label("Set Projects")
+@Description("Projects of ProjectsManager replaced with ProjectsManager.setProjects")
+@Category({"Task Manager", "Model"})
+public class SetProjectsEvent extends Event {
+    @Label("Projects")
+    int projects;
+
+    @Label("Loaded Tasks")
+    @Description("Tasks of the projects whose tasks are loaded, the tasks of mapped projects are not counted")
+    long tasks;
+
+    /**
+     * Sets the fields and commits the event. Call only if {@link #shouldCommit()}.
+     *
+     * @param projects the number of projects set
+     * @param tasks the number of tasks in the projects that are loaded
+     */
+    public void commit(int projects, long tasks) {
+        this.projects = projects;
+        this.tasks = tasks;
+        commit();
+    }
+}
@@ -0,0 +1,29 @@
+package se.kth.saeedvan.taskmanager.metrics;
+
+/**
+ * The operations whose calls are counted and timed by {@link Metrics}.
+ */
+public enum TimedOperation {
+    PROJECT_FIND_TASKS("Project.findTasks"),
+    PROJECT_ADD_TASK("Project.addTask"),
+    MANAGER_FIND_TASKS("ProjectsManager.findTasks"),
+    MANAGER_SET_PROJECTS("ProjectsManager.setProjects"),
+    FILE_SAVE("ProjectsFileIO.saveToFile"),
+    FILE_LOAD("ProjectsFileIO.loadFromFile"),
+    FILE_MAP("ProjectsFileIO.mapFromFile"),
+    FILE_APPEND("ProjectsFileIO.appendChunks"),
+    FILE_COMPACT("ProjectsFileIO.compactFile"),
+    FILE_SERIALIZE("ProjectsFileIO.serializeToFile"),
+    FILE_DESERIALIZE("ProjectsFileIO.deSerializeFromFile");
+
+    private final String str;
+
+    private TimedOperation(String str) {
+        this.str = str;
+    }
+
+    @Override
+    public String toString() {
+        return str;
+    }
+}
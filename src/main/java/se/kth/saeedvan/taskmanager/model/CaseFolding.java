@@ -0,0 +1,49 @@
+package se.kth.saeedvan.taskmanager.model;
+
+/**
+ * Folds strings to a canonical case, so that two strings that are equal according to
+ * {@link String#equalsIgnoreCase(String)} fold to the same key. Used as key for the
+ * case-insensitive indexes.
+ */
+final class CaseFolding {
+
+    /**
+     * Returns the folded form of the given string, or {@code null} if {@code str} is {@code null}.
+     *
+     * @param str the string to fold
+     * @return the folded string
+     */
+    static String fold(String str) {
+        if (str == null)
+            return null;
+        if (isFolded(str))
+            return str;
+        StringBuilder builder = new StringBuilder(str.length());
+        str.codePoints().forEach(cp -> builder.appendCodePoint(fold(cp)));
+        return builder.toString();
+    }
+
+    /**
+     * Returns the folded form of a single code point.
+     *
+     * @param cp the code point to fold
+     * @return the folded code point
+     */
+    static int fold(int cp) {
+        if (cp < 0x80)
+            return cp >= 'A' && cp <= 'Z' ? cp + ('a' - 'A') : cp;
+        return Character.toLowerCase(Character.toUpperCase(cp));
+    }
+
+    // most keys are plain ASCII in lower case, which are folded already
+    private static boolean isFolded(String str) {
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c >= 0x80 || (c >= 'A' && c <= 'Z'))
+                return false;
+        }
+        return true;
+    }
+
+    private CaseFolding() {}
+}
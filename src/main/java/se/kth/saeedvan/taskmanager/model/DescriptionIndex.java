@@ -0,0 +1,85 @@
+package se.kth.saeedvan.taskmanager.model;
+
+import se.kth.saeedvan.taskmanager.model.matcher.DescriptionMatcher;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Inverted index over the descriptions of the tasks of one project.
+ * <p>
+ * For every word, as split by {@link DescriptionMatcher#tokenize(String)}, the ids of the tasks whose
+ * description contains the word are kept in an {@link IdPostings}, since most words are in few descriptions. The words are sorted, so that all
+ * words starting with a prefix can be found without looking at the others.
+ * A description never changes, so tasks are only indexed when added and removed.
+ */
+class DescriptionIndex {
+    private final NavigableMap<String, IdPostings> postings;
+
+    DescriptionIndex() {
+        this.postings = new TreeMap<>();
+    }
+
+    /**
+     * Builds the index of the given tasks. The words are collected in a hash map and sorted once at the end.
+     *
+     * @param tasks the tasks to index
+     */
+    DescriptionIndex(Collection<Task> tasks) {
+        Map<String, IdPostings> words = new HashMap<>();
+        for (Task task : tasks) {
+            for (String word : DescriptionMatcher.tokenize(task.getDescription())) {
+                words.computeIfAbsent(word, w -> new IdPostings()).add(task.getId());
+            }
+        }
+        this.postings = new TreeMap<>(words);
+    }
+
+    void add(Task task) {
+        for (String word : DescriptionMatcher.tokenize(task.getDescription())) {
+            postings.computeIfAbsent(word, w -> new IdPostings()).add(task.getId());
+        }
+    }
+
+    void remove(Task task) {
+        for (String word : DescriptionMatcher.tokenize(task.getDescription())) {
+            IdPostings ids = postings.get(word);
+            if (ids != null) {
+                ids.remove(task.getId());
+                if (ids.isEmpty())
+                    postings.remove(word);
+            }
+        }
+    }
+
+    /**
+     * Finds the ids of exactly the tasks that match the given matcher.
+     *
+     * @param matcher the matcher to answer
+     * @param all the ids of all tasks, used when the matcher has no words
+     * @return the ids of the matching tasks
+     */
+    BitSet find(DescriptionMatcher matcher, BitSet all) {
+        BitSet result = (BitSet) all.clone();
+        for (String term : matcher.getTerms()) {
+            IdPostings ids = postings.get(term);
+            if (ids == null)
+                return new BitSet();
+            result.and(ids.toBitSet());
+        }
+        for (String prefix : matcher.getPrefixes()) {
+            BitSet ids = new BitSet();
+            for (Map.Entry<String, IdPostings> e : postings.tailMap(prefix, true).entrySet()) {
+                if (!e.getKey().startsWith(prefix))
+                    break;
+                e.getValue().orInto(ids);
+            }
+            result.and(ids);
+        }
+        return result;
+    }
+}
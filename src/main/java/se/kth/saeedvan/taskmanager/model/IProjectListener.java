@@ -0,0 +1,27 @@
+package se.kth.saeedvan.taskmanager.model;
+
+/**
+ * Listener that is notified after projects and tasks have been added, removed or updated.
+ * <p>
+ * A listener added to a {@link Project} is notified about the tasks of that project. A listener added to
+ * a {@link ProjectsManager} is notified about the projects of the manager and about the tasks of all its projects.
+ * All methods do nothing by default, so a listener only implements what it needs.
+ */
+public interface IProjectListener {
+
+    public default void projectAdded(Project project) {}
+
+    public default void projectRemoved(Project project) {}
+
+    public default void taskAdded(Project project, Task task) {}
+
+    public default void taskRemoved(Project project, Task task) {}
+
+    /**
+     * Called after state, priority or taken by of a task has been set.
+     *
+     * @param project the project of the task
+     * @param task the updated task
+     */
+    public default void taskUpdated(Project project, Task task) {}
+}
@@ -0,0 +1,11 @@
+package se.kth.saeedvan.taskmanager.model;
+
+import java.time.LocalDate;
+
+/**
+ * Listener that is notified after a {@link Task} has been updated.
+ * The task itself holds the new values, the old values are given as parameters.
+ */
+public interface ITaskListener {
+    public void taskUpdated(Task task, TaskState oldState, TaskPrio oldPrio, String oldTakenBy, LocalDate oldLastUpdate);
+}
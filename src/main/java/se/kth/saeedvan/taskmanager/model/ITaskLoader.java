@@ -0,0 +1,10 @@
+package se.kth.saeedvan.taskmanager.model;
+
+/**
+ * Loads the tasks of a {@link Project} that has been restored without them.
+ * The loader is called the first time the tasks of the project are needed, and adds them with
+ * {@link Project#restoreTask}. Listeners of the project are not notified about the loaded tasks.
+ */
+public interface ITaskLoader {
+    public void loadTasks(Project project);
+}
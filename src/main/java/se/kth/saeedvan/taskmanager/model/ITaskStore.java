@@ -0,0 +1,46 @@
+package se.kth.saeedvan.taskmanager.model;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The tasks of one {@link Project} by their id, in the form given by {@link TaskStorage}.
+ * The store is guarded by the lock of the project: it is changed while holding the write lock and read
+ * while holding the read lock, except for {@link #snapshot()}.
+ */
+interface ITaskStore {
+    int size();
+
+    /**
+     * @param id the id of the task
+     * @return the task with the id, or {@code null} if there is none
+     */
+    Task get(int id);
+
+    /**
+     * Adds a task, or replaces the task with the same id. The project is notified through its listener
+     * when the stored task is changed.
+     *
+     * @param task the task to store
+     * @return the task as stored, which is the task to hand out from now on
+     */
+    Task put(Task task);
+
+    /**
+     * @param id the id of the task to remove, which must be in the store
+     */
+    void remove(int id);
+
+    /**
+     * @return the tasks, to read while holding the lock
+     */
+    Collection<Task> values();
+
+    /**
+     * Returns the tasks at this moment, in order of their id, as an immutable list that later changes of
+     * the store do not change. May be called without holding the lock.
+     *
+     * @return an immutable list of the tasks
+     */
+    List<Task> snapshot();
+}
@@ -0,0 +1,66 @@
+package se.kth.saeedvan.taskmanager.model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Sorted set of ids, stored as an array of ints.
+ * <p>
+ * Used instead of a {@link BitSet} for index keys that only a few ids have, such as a word of a
+ * description, since a {@code BitSet} takes space up to the highest id it holds. Ids are usually
+ * added in increasing order, which only appends to the array.
+ */
+class IdPostings {
+    private int[] ids;
+    private int size;
+
+    IdPostings() {
+        this.ids = new int[2];
+        this.size = 0;
+    }
+
+    void add(int id) {
+        int i = size == 0 || ids[size - 1] < id ? -(size + 1) : Arrays.binarySearch(ids, 0, size, id);
+        if (i >= 0)
+            return;
+        i = -(i + 1);
+        if (size == ids.length)
+            ids = Arrays.copyOf(ids, size * 2);
+        System.arraycopy(ids, i, ids, i + 1, size - i);
+        ids[i] = id;
+        size++;
+    }
+
+    void remove(int id) {
+        int i = Arrays.binarySearch(ids, 0, size, id);
+        if (i < 0)
+            return;
+        System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+        size--;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Sets the bits of all ids in this set in the given {@code BitSet}.
+     *
+     * @param target the set to add the ids to
+     */
+    void orInto(BitSet target) {
+        for (int i = 0; i < size; i++) {
+            target.set(ids[i]);
+        }
+    }
+
+    BitSet toBitSet() {
+        BitSet bits = new BitSet(size == 0 ? 0 : ids[size - 1] + 1);
+        orInto(bits);
+        return bits;
+    }
+}
@@ -0,0 +1,79 @@
+package se.kth.saeedvan.taskmanager.model;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Store of {@link TaskStorage#OBJECTS}: the tasks themselves, by id, iterated in insertion order.
+ */
+final class ObjectTaskStore implements ITaskStore {
+    private final Map<Integer, Task> tasks = new LinkedHashMap<>();
+    private final ReentrantReadWriteLock lock;
+    private final ITaskListener listener;
+    // built on first use, then replaced on every change so readers need no lock
+    private volatile TaskSnapshot snapshot;
+
+    /**
+     * @param lock the lock of the project, which the tasks are changed under
+     * @param listener the listener of the project, added to every task
+     */
+    ObjectTaskStore(ReentrantReadWriteLock lock, ITaskListener listener) {
+        this.lock = lock;
+        this.listener = listener;
+    }
+
+    @Override
+    public int size() {
+        return tasks.size();
+    }
+
+    @Override
+    public Task get(int id) {
+        return tasks.get(id);
+    }
+
+    @Override
+    public Task put(Task task) {
+        Task replaced = tasks.get(task.getId());
+        if (replaced != null)
+            replaced.removeListener(listener);
+        task.setLock(lock);
+        task.addListener(listener);
+        // a replaced task keeps its place in the order of the tasks
+        tasks.put(task.getId(), task);
+        if (snapshot != null)
+            snapshot = snapshot.with(task);
+        return task;
+    }
+
+    @Override
+    public void remove(int id) {
+        tasks.remove(id).removeListener(listener);
+        if (snapshot != null)
+            snapshot = snapshot.without(id);
+    }
+
+    @Override
+    public Collection<Task> values() {
+        return tasks.values();
+    }
+
+    @Override
+    public List<Task> snapshot() {
+        TaskSnapshot s = snapshot;
+        if (s != null)
+            return s;
+        lock.readLock().lock();
+        try {
+            // built in one pass, instead of a step for every task while the tasks are loaded
+            if (snapshot == null)
+                snapshot = TaskSnapshot.of(tasks.values());
+            return snapshot;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
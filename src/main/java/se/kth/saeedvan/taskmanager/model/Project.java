@@ -1,36 +1,230 @@
 package se.kth.saeedvan.taskmanager.model;
 
+import se.kth.saeedvan.taskmanager.metrics.FindTasksEvent;
+import se.kth.saeedvan.taskmanager.metrics.Metrics;
+import se.kth.saeedvan.taskmanager.metrics.TimedOperation;
 import se.kth.saeedvan.taskmanager.model.matcher.ITaskMatcher;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This class represents logic and data for a project that contains the list of tasks created by the user.
  * <p>
  * Handles the tasks and stores them in an internal list for further handling from the user.
+ * <p>
+ * A project can be used from several threads. Each project is guarded by its own read/write lock:
+ * reading, such as {@link #findTasks}, takes the read lock, so readers never block each other, and
+ * adding, removing or changing tasks takes the write lock. Listeners are notified while the write lock is held.
+ * <p>
+ * The tasks are kept as given by {@link TaskStorage}, which is chosen for all projects created from then on
+ * with {@link #setDefaultStorage(TaskStorage)}.
  *
  * @author Saeed Kassab
  * @author Van Matti
  * @serial
  */
 public class Project implements Comparable<Project>, Serializable {
-    private List<Task> tasks;
+    private static final long serialVersionUID = -8719418303471618513L;
+
+    /**
+     * The serialized form is still the original list of tasks, so that files written
+     * before the tasks were indexed by id can be read.
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("tasks", List.class),
+            new ObjectStreamField("title", String.class),
+            new ObjectStreamField("id", int.class),
+            new ObjectStreamField("description", String.class),
+            new ObjectStreamField("created", LocalDate.class),
+            new ObjectStreamField("nextTaskId", int.class)
+    };
+
+    private static volatile TaskStorage defaultStorage = TaskStorage.OBJECTS;
+
+    private transient TaskStorage storage;
+    // tasks by id
+    private transient ITaskStore tasks;
+    private transient TaskIndex index;
+    private transient ITaskListener taskListener;
+    private transient List<IProjectListener> listeners;
+    // loads the tasks on first use, null when the tasks are loaded
+    private transient volatile ITaskLoader taskLoader;
+    // answers counts and dates until the tasks are loaded, null if there is none
+    private transient volatile TaskSummary summary;
+    private transient ReentrantReadWriteLock lock;
     private String title;
-    private final int id;
+    private int id;
     private String description;
     private LocalDate created;
-    private int nextTaskId;
+    private volatile int nextTaskId;
 
 
     protected Project(String title, String description, int id) {
-        this.tasks = new ArrayList<>();
+        this(title, description, id, LocalDate.now(), 1);
+    }
+
+    private Project(String title, String description, int id, LocalDate created, int nextTaskId) {
+        this.storage = defaultStorage;
+        this.taskListener = this::taskUpdated;
+        this.lock = new ReentrantReadWriteLock();
+        this.tasks = newStore();
+        this.index = new TaskIndex();
         this.title = title;
         this.description = description;
         this.id = id;
-        this.created = LocalDate.now();
-        this.nextTaskId = 1;
+        this.created = created;
+        this.nextTaskId = nextTaskId;
+    }
+
+    /**
+     * Recreates a project that has been stored, keeping its id, creation date and next task id.
+     * The tasks of the project are added with {@link #restoreTask}.
+     * Intended for reading projects from file, use {@link ProjectsManager#addProject} to create new projects.
+     *
+     * @param title title of the project
+     * @param description description of the project
+     * @param id id of the project
+     * @param created the date the project was created
+     * @param nextTaskId the id of the next task added to the project
+     * @return the recreated project, without tasks
+     */
+    public static Project restore(String title, String description, int id, LocalDate created, int nextTaskId) {
+        return new Project(title, description, id, created, nextTaskId);
+    }
+
+    /**
+     * Recreates a project that has been stored like {@link #restore(String, String, int, LocalDate, int)},
+     * but without loading its tasks. The tasks are loaded by {@code taskLoader} the first time they are needed,
+     * so a project that is never looked into costs no more than its title and description.
+     *
+     * @param title title of the project
+     * @param description description of the project
+     * @param id id of the project
+     * @param created the date the project was created
+     * @param nextTaskId the id of the next task added to the project
+     * @param taskLoader loads the tasks of the project when they are first needed
+     * @return the recreated project, with its tasks not yet loaded
+     */
+    public static Project restore(String title, String description, int id, LocalDate created, int nextTaskId,
+                                  ITaskLoader taskLoader) {
+        return restore(title, description, id, created, nextTaskId, null, taskLoader);
+    }
+
+    /**
+     * Recreates a project that has been stored without loading its tasks, like
+     * {@link #restore(String, String, int, LocalDate, int, ITaskLoader)}. Until the tasks are loaded,
+     * {@link #getTaskCount()}, {@link #getState()}, {@link #getLastUptaded()} and {@link #toString()}
+     * are answered from {@code summary}, so listing projects does not load them.
+     *
+     * @param title title of the project
+     * @param description description of the project
+     * @param id id of the project
+     * @param created the date the project was created
+     * @param nextTaskId the id of the next task added to the project
+     * @param summary the summary of the stored tasks, or {@code null} if it is not known
+     * @param taskLoader loads the tasks of the project when they are first needed
+     * @return the recreated project, with its tasks not yet loaded
+     */
+    public static Project restore(String title, String description, int id, LocalDate created, int nextTaskId,
+                                  TaskSummary summary, ITaskLoader taskLoader) {
+        Project project = new Project(title, description, id, created, nextTaskId);
+        project.summary = summary;
+        project.taskLoader = taskLoader;
+        return project;
+    }
+
+    /**
+     * Sets how projects created from now on keep their tasks, including projects read from file.
+     * Projects that have been created keep their storage.
+     *
+     * @param storage the storage of new projects
+     */
+    public static void setDefaultStorage(TaskStorage storage) {
+        defaultStorage = Objects.requireNonNull(storage);
+    }
+
+    public static TaskStorage getDefaultStorage() {
+        return defaultStorage;
+    }
+
+    public TaskStorage getStorage() {
+        return storage;
+    }
+
+    private ITaskStore newStore() {
+        return storage == TaskStorage.COLUMNS ? new TaskColumns(lock, taskListener) : new ObjectTaskStore(lock, taskListener);
+    }
+
+    /**
+     * Returns if the tasks of this project are loaded. Only a project restored with an {@link ITaskLoader}
+     * can have tasks that are not loaded yet.
+     *
+     * @return true if the tasks are loaded, otherwise false
+     */
+    public boolean isLoaded() {
+        return taskLoader == null;
+    }
+
+    /**
+     * Loads the tasks of this project now, if they are not loaded yet.
+     * Otherwise they are loaded the first time they are needed.
+     */
+    public void load() {
+        ensureLoaded();
+    }
+
+    /**
+     * @return the summary of the stored tasks while they are not loaded, otherwise {@code null}
+     */
+    private TaskSummary unloadedSummary() {
+        // read before the loader, which is cleared before the summary when the tasks are loaded
+        TaskSummary s = summary;
+        return s != null && taskLoader != null ? s : null;
+    }
+
+    private void ensureLoaded() {
+        // the loader restores the tasks while holding the write lock
+        if (taskLoader == null || lock.isWriteLockedByCurrentThread())
+            return;
+        lock.writeLock().lock();
+        try {
+            if (taskLoader != null)
+                loadTasks();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void loadTasks() {
+        List<IProjectListener> notified = listeners;
+        // loading the tasks does not change the project, so there is nothing to notify
+        listeners = null;
+        // the index is built once all tasks are loaded
+        index = null;
+        try {
+            taskLoader.loadTasks(this);
+            index = new TaskIndex(tasks.values());
+            // cleared last, since other threads read the tasks without the lock once it is cleared
+            taskLoader = null;
+            summary = null;
+        } catch (RuntimeException e) {
+            // try again next time instead of keeping part of the tasks
+            tasks = newStore();
+            index = new TaskIndex();
+            throw e;
+        } finally {
+            listeners = notified;
+        }
     }
 
     public String getTitle() {
@@ -45,10 +239,27 @@ public class Project implements Comparable<Project>, Serializable {
         return description;
     }
 
+    public LocalDate getCreated() {
+        return created;
+    }
+
     public int getNextTaskId() {
         return nextTaskId;
     }
 
+    public int getTaskCount() {
+        TaskSummary s = unloadedSummary();
+        if (s != null)
+            return s.taskCount();
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return tasks.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
     /**
      * Creates a new task with the given description and priority.
      * The task is added to the list {@code tasks}, {@code nextTaskId} variable is incremented.
@@ -58,26 +269,140 @@ public class Project implements Comparable<Project>, Serializable {
      * @return the newly created task
      */
     public Task addTask(String description, TaskPrio prio){
-        Task newTask = new Task(description, prio, this.nextTaskId);
-        tasks.add(newTask);
-        this.nextTaskId++;
-        return newTask;
+        long start = Metrics.start();
+        try {
+            return createTask(description, prio);
+        } finally {
+            Metrics.record(TimedOperation.PROJECT_ADD_TASK, start);
+        }
+    }
+
+    private Task createTask(String description, TaskPrio prio) {
+        ensureLoaded();
+        lock.writeLock().lock();
+        try {
+            Task newTask = put(new Task(description, prio, this.nextTaskId));
+            this.nextTaskId++;
+            for (IProjectListener l : listeners()) {
+                l.taskAdded(this, newTask);
+            }
+            return newTask;
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
-     * Removes a given task from this project and removes from the list {@code tasks}.
+     * Adds a task that has been stored, keeping its id, state, taken by and last update.
+     * A task with the same id in this project is replaced, and {@code nextTaskId} is raised above the id if needed.
+     * Listeners are notified that the task was added, or updated if it replaced a task.
+     * Intended for reading projects from file, use {@link #addTask(String, TaskPrio)} to create new tasks.
+     *
+     * @param id id of the task
+     * @param description description of the task
+     * @param prio priority of the task
+     * @param state state of the task, or {@code null} if the state has never been set
+     * @param takenBy who has taken the task, or {@code null} if not taken
+     * @param lastUpdate the date of the last update, or {@code null} if never updated
+     * @return the restored task
+     * @throws IllegalArgumentException if {@code id} is negative
+     */
+    public Task restoreTask(int id, String description, TaskPrio prio, TaskState state, String takenBy, LocalDate lastUpdate) {
+        if (id < 0)
+            throw new IllegalArgumentException("id is negative");
+        ensureLoaded();
+        lock.writeLock().lock();
+        try {
+            Task existing = tasks.get(id);
+            if (existing != null && index != null)
+                index.remove(existing);
+            Task task = put(new Task(description, prio, id, state, takenBy, lastUpdate));
+            this.nextTaskId = Math.max(this.nextTaskId, id + 1);
+            for (IProjectListener l : listeners()) {
+                if (existing == null)
+                    l.taskAdded(this, task);
+                else
+                    l.taskUpdated(this, task);
+            }
+            return task;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // the index is built once all tasks are loaded, so the tasks are not indexed while loading
+    private Task put(Task task) {
+        Task stored = tasks.put(task);
+        if (index != null)
+            index.add(stored);
+        return stored;
+    }
+
+    /**
+     * Removes a given task from this project. The task is looked up by its id.
      *
      * @param task to be removed
      * @return true if successfully removed the task, otherwise returns false.
      */
     public boolean removeTask(Task task) {
-        for (int i = 0; i < tasks.size(); i++) {
-            if (tasks.get(i).equals(task)) {
-                tasks.remove(i);
-                return true;
+        ensureLoaded();
+        lock.writeLock().lock();
+        try {
+            Task existing = tasks.get(task.getId());
+            if (existing == null || !existing.equals(task))
+                return false;
+            index.remove(existing);
+            tasks.remove(task.getId());
+            for (IProjectListener l : listeners()) {
+                l.taskRemoved(this, existing);
             }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void taskUpdated(Task task, TaskState oldState, TaskPrio oldPrio, String oldTakenBy, LocalDate oldLastUpdate) {
+        index.update(task, oldState, oldPrio, oldTakenBy, oldLastUpdate);
+        for (IProjectListener l : listeners()) {
+            l.taskUpdated(this, task);
+        }
+    }
+
+    /**
+     * Adds a listener that is notified when tasks are added to, removed from or updated in this project.
+     * Listeners are not serialized.
+     *
+     * @param listener the listener to add
+     */
+    public void addListener(IProjectListener listener) {
+        lock.writeLock().lock();
+        try {
+            if (listeners == null)
+                listeners = new CopyOnWriteArrayList<>();
+            listeners.add(listener);
+        } finally {
+            lock.writeLock().unlock();
         }
-        return false;
+    }
+
+    /**
+     * Removes a listener added with {@link #addListener(IProjectListener)}.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeListener(IProjectListener listener) {
+        lock.writeLock().lock();
+        try {
+            if (listeners != null)
+                listeners.remove(listener);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private List<IProjectListener> listeners() {
+        return listeners == null ? List.of() : listeners;
     }
 
     /**
@@ -85,35 +410,52 @@ public class Project implements Comparable<Project>, Serializable {
      * If there are no tasks, the stat is {@link ProjectState#EMPTY}.
      * If all tasks is not {@link TaskState#DONE}, the state is {@link ProjectState#ONGOING}.
      * If all tasks are {@link TaskState#DONE}, the state is {@link ProjectState#COMPLETED}.
+     * The number of tasks in each state is kept up to date, so this does not look at the tasks.
      *
      * @return the current {@link ProjectState} of this project
      */
     public ProjectState getState() {
-        if (tasks.size() == 0)
-            return ProjectState.EMPTY;
-        for(Task t : tasks) {
-            if (t.getState() != TaskState.DONE)
-                return ProjectState.ONGOING;
+        TaskSummary s = unloadedSummary();
+        if (s != null)
+            return state(s.taskCount(), s.doneCount());
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return state(tasks.size(), index.count(TaskState.DONE));
+        } finally {
+            lock.readLock().unlock();
         }
+    }
+
+    private static ProjectState state(int taskCount, int doneCount) {
+        if (taskCount == 0)
+            return ProjectState.EMPTY;
+        if (doneCount != taskCount)
+            return ProjectState.ONGOING;
         return ProjectState.COMPLETED;
     }
 
     /**
      * Returns the {@link LocalDate} of the latest updated task in the project.
-     * If there are no tasks in the project, then the projects creation date is returned.
+     * If there are no tasks in the project, or none of them has been updated yet,
+     * then the projects creation date is returned.
      *
      * @return the date of the latest update or the creation date if there are no tasks
      */
     public LocalDate getLastUptaded() {
-        LocalDate lastUpDated = LocalDate.ofEpochDay(0);
-        if (tasks.size() == 0)
-            return this.created;
-
-        for (Task t : tasks) {
-            if (lastUpDated.isBefore(t.getLastUpdate()))
-                lastUpDated = t.getLastUpdate();
+        TaskSummary s = unloadedSummary();
+        if (s != null)
+            return s.lastUpdate() == null ? this.created : s.lastUpdate();
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            LocalDate lastUpDated = index.lastUpdate();
+            if (lastUpDated == null)
+                return this.created;
+            return lastUpDated;
+        } finally {
+            lock.readLock().unlock();
         }
-        return lastUpDated;
     }
 
     /**
@@ -124,36 +466,142 @@ public class Project implements Comparable<Project>, Serializable {
      * @return Returns the searched task by the given id or null
      */
     public Task getTaskById(int id) {
-        for (Task t : tasks) {
-            if (t.getId() == id)
-                return t;
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return tasks.get(id);
+        } finally {
+            lock.readLock().unlock();
         }
-        return null;
     }
 
     /**
      * Finds all the tasks in this project that matches the given criteria.
      * The matching is made by the given {@link ITaskMatcher}.
      * The matched tasks are returned in descending order of their id.
+     * <p>
+     * Matchers that can be answered from the indexes of the project, such as
+     * {@link se.kth.saeedvan.taskmanager.model.matcher.NotDoneMatcher} or an
+     * {@link se.kth.saeedvan.taskmanager.model.matcher.AndMatcher} with such a matcher among its children,
+     * only test the tasks selected by the index. Any other matcher is tested against every task.
      *
      * @param matcher criteria used to find the tasks
      * @return a list of tasks that matches the criteria
      */
     public List<Task> findTasks(ITaskMatcher matcher) {
-        List<Task> matchedTasks = new ArrayList<>();
-        for (Task t : this.tasks) {
-            if (matcher.match(t))
-                matchedTasks.add(t);
+        return findTasks(matcher, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Finds the tasks with the highest ids that matches the given criteria, that is the newest ones.
+     * At most {@code limit} tasks are returned, in descending order of their id.
+     *
+     * @param matcher criteria used to find the tasks
+     * @param limit the maximum number of tasks to return
+     * @return a list of at most {@code limit} tasks that matches the criteria
+     * @throws IllegalArgumentException if {@code limit} is negative
+     */
+    public List<Task> findTasks(ITaskMatcher matcher, int limit) {
+        return findTasks(matcher, limit, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Finds one page of the tasks that matches the given criteria. The page holds the matching tasks with
+     * an id lower than {@code beforeId}, at most {@code limit} of them, in descending order of their id.
+     * To get the next page, pass the id of the last task of this page as {@code beforeId}.
+     * <p>
+     * The tasks are visited from the highest id and the search stops when the page is full,
+     * so a page is not more expensive than its size when the matcher can be answered by the index.
+     *
+     * @param matcher criteria used to find the tasks
+     * @param limit the maximum number of tasks to return
+     * @param beforeId only tasks with an id lower than this are returned
+     * @return a list of at most {@code limit} tasks that matches the criteria
+     * @throws IllegalArgumentException if {@code limit} is negative
+     */
+    public List<Task> findTasks(ITaskMatcher matcher, int limit, int beforeId) {
+        if (limit < 0)
+            throw new IllegalArgumentException("limit is negative");
+        long start = Metrics.start();
+        FindTasksEvent event = new FindTasksEvent();
+        event.begin();
+        try {
+            List<Task> found = collectTasks(matcher, limit, beforeId);
+            if (event.shouldCommit())
+                event.commit(id, matcher.getClass(), limit, found.size());
+            return found;
+        } finally {
+            Metrics.record(TimedOperation.PROJECT_FIND_TASKS, start);
+        }
+    }
+
+    private List<Task> collectTasks(ITaskMatcher matcher, int limit, int beforeId) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            TaskIndex.Plan plan = index.plan(matcher);
+            if (plan == null)
+                plan = new TaskIndex.Plan(index.all(), matcher);
+
+            BitSet ids = plan.ids();
+            ITaskMatcher residual = plan.residual();
+            List<Task> matchedTasks = new ArrayList<>(plan.isExact() ? Math.min(limit, ids.cardinality()) : Math.min(limit, 16));
+            int id = beforeId <= 0 ? -1 : ids.previousSetBit(beforeId - 1);
+            for (; id >= 0 && matchedTasks.size() < limit; id = ids.previousSetBit(id - 1)) {
+                Task t = tasks.get(id);
+                if (residual == null || residual.match(t))
+                    matchedTasks.add(t);
+            }
+            return matchedTasks;
+        } finally {
+            lock.readLock().unlock();
         }
-        Comparator<Task> c = (Task t1, Task t2) -> {
-            if (t1.getId() > t2.getId())
-                return -1;
-            else if (t1.getId() < t2.getId())
-                return 1;
-            else return 0;
-        };
-        Collections.sort(matchedTasks, c);
-        return matchedTasks;
+    }
+
+    /**
+     * Returns a lazy stream of all tasks in this project, in the order they were added.
+     * <p>
+     * Unlike {@link #getTasks()} no list of the tasks is created. The stream covers the tasks in the
+     * project when this method is called: tasks added later are not included, and tasks removed
+     * before the stream reaches them are skipped.
+     *
+     * @return a stream of the tasks in this project
+     */
+    public Stream<Task> streamTasks() {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return StreamSupport.stream(new TaskSpliterator(index.all(), tasks, lock.readLock(), false), false);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a lazy stream of the tasks in this project that matches the given criteria,
+     * in descending order of their id, the same tasks and order as {@link #findTasks(ITaskMatcher)}.
+     * <p>
+     * The index is used to select the tasks as in {@code findTasks}, but the tasks are only looked up
+     * and tested while the stream is consumed. The same consistency as for {@link #streamTasks()} applies.
+     *
+     * @param matcher criteria used to find the tasks
+     * @return a stream of the tasks that matches the criteria
+     */
+    public Stream<Task> streamTasks(ITaskMatcher matcher) {
+        ensureLoaded();
+        TaskIndex.Plan plan;
+        TaskSpliterator spliterator;
+        lock.readLock().lock();
+        try {
+            plan = index.plan(matcher);
+            if (plan == null)
+                plan = new TaskIndex.Plan(index.all(), matcher);
+            spliterator = new TaskSpliterator(plan.ids(), tasks, lock.readLock(), true);
+        } finally {
+            lock.readLock().unlock();
+        }
+        Stream<Task> stream = StreamSupport.stream(spliterator, false);
+        return plan.isExact() ? stream : stream.filter(plan.residual()::match);
     }
 
     /**
@@ -181,12 +629,57 @@ public class Project implements Comparable<Project>, Serializable {
         return false;
     }
 
+    /**
+     * Returns a hash code of the title, folded to the case in which titles are unique, so that projects
+     * that are equal have the same hash code.
+     *
+     * @return the hash code of this project
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(CaseFolding.fold(title));
+    }
+
+    /**
+     * Returns the tasks of this project at this moment, in order of their id, without taking a lock or copying
+     * the tasks. The returned list is immutable and is not changed when tasks are later added to or removed from
+     * the project, so it can be iterated while other threads change the project. The tasks themselves are not
+     * copied, so their state, priority and who has taken them are read as they are when read.
+     *
+     * @return an immutable list of the tasks
+     */
     public List<Task> getTasks() {
-        return List.copyOf(this.tasks);
+        ensureLoaded();
+        return tasks.snapshot();
     }
 
+    /**
+     * Returns the project with its tasks. A project whose tasks are not loaded only shows how many
+     * tasks it has, if that is known, instead of loading them.
+     */
     @Override
     public String toString() {
+        TaskSummary s = unloadedSummary();
+        if (s != null)
+            return formatHeader().append('(').append(s.taskCount()).append(" tasks, shown when the project is managed)\n").toString();
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return format();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private String format() {
+        StringBuilder builder = formatHeader();
+        for (Task t : tasks.values()) {
+            builder.append(t.toString()).append("\n");
+        }
+        return builder.toString();
+    }
+
+    private StringBuilder formatHeader() {
         StringBuilder builder = new StringBuilder();
         String str = "*Project:  | description:  | id:  | created: *" + "0000-00-00";
         int strSize = title.length() + description.length() + Integer.toString(id).length() + str.length();
@@ -198,9 +691,36 @@ public class Project implements Comparable<Project>, Serializable {
                 "created: " + created + "*\n");
         builder.append("*".repeat(Math.max(0, strSize)));
         builder.append("\n");
-        for (Task t : tasks) {
-            builder.append(t.toString()).append("\n");
+        return builder;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("tasks", new ArrayList<>(getTasks()));
+        fields.put("title", title);
+        fields.put("id", id);
+        fields.put("description", description);
+        fields.put("created", created);
+        fields.put("nextTaskId", nextTaskId);
+        out.writeFields();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        this.title = (String) fields.get("title", null);
+        this.id = fields.get("id", 0);
+        this.description = (String) fields.get("description", null);
+        this.created = (LocalDate) fields.get("created", null);
+        this.nextTaskId = fields.get("nextTaskId", 1);
+        List<Task> storedTasks = (List<Task>) fields.get("tasks", null);
+        this.storage = defaultStorage;
+        this.taskListener = this::taskUpdated;
+        this.lock = new ReentrantReadWriteLock();
+        this.tasks = newStore();
+        for (Task t : storedTasks) {
+            tasks.put(t);
         }
-        return builder.toString();
+        this.index = new TaskIndex(tasks.values());
     }
 }
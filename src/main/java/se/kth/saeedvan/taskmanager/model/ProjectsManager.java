@@ -1,69 +1,151 @@
 package se.kth.saeedvan.taskmanager.model;
 
+import se.kth.saeedvan.taskmanager.metrics.Metrics;
+import se.kth.saeedvan.taskmanager.metrics.SetProjectsEvent;
+import se.kth.saeedvan.taskmanager.metrics.TimedOperation;
 import se.kth.saeedvan.taskmanager.model.exceptions.TitleNotUniqueException;
+import se.kth.saeedvan.taskmanager.model.matcher.DescriptionMatcher;
+import se.kth.saeedvan.taskmanager.model.matcher.ITaskMatcher;
 
-import java.nio.MappedByteBuffer;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * This class represents logic and data for a project manager that contains the list of projects created by the user.
  * <p>
- * Handles the projects and stores them in an internal list for further handling from the user.
+ * Handles the projects and stores them in an internal map by id for further handling from the user.
+ * The projects are also indexed by their title, ignoring case, to keep the titles unique,
+ * and by the trigrams of their title, to find projects by a part of the title.
+ * <p>
+ * The manager can be used from several threads. The projects are held in concurrent maps, so looking up
+ * a project never blocks, and each project is guarded by its own lock, see {@link Project}, so that
+ * searches never block each other and changes to different projects are made in parallel.
+ * Adding and removing projects is guarded by a lock of the manager, which searches by title share.
  *
  * @author Saeed Kassab
  * @author Van Matti
  * @serial
  */
 public class ProjectsManager {
-    private List<Project> projects;
-    private int nextProjectId;
+    /**
+     * Default for {@link #setParallelThreshold(int)}.
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 10_000;
+
+    // projects by id, iterated in order of id
+    private volatile Map<Integer, Project> projects;
+    // projects by case folded title
+    private volatile Map<String, Project> projectsByTitle;
+    // guards the title index, the next id and the adding and removing of projects and listeners
+    private final ReadWriteLock lock;
+    private volatile TrigramIndex titleIndex;
+    private volatile int nextProjectId;
+    private volatile int parallelThreshold;
+    private final List<IProjectListener> listeners;
     public ProjectsManager() {
-        projects = new ArrayList<>();
+        projects = new ConcurrentSkipListMap<>();
+        projectsByTitle = new ConcurrentHashMap<>();
+        lock = new ReentrantReadWriteLock();
+        titleIndex = new TrigramIndex();
+        listeners = new CopyOnWriteArrayList<>();
         this.nextProjectId = 1;
+        this.parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
     }
 
     /**
-     * Empties out the list {@code projects} and then adds the objects from the given parameter {@code incomingProjects}.
+     * Empties out {@code projects} and then adds the objects from the given parameter {@code incomingProjects}.
+     * The given projects are used as they are, so they keep their id, creation date and tasks, and a project
+     * whose tasks are not loaded yet is not loaded by this method.
+     * Listeners are not notified about the removed or added projects, but are added to the new projects.
+     * If the projects can not all be added, the manager is left unchanged.
      *
      * @param incomingProjects a project list containing tasks
+     * @throws TitleNotUniqueException if two of the projects have the same title
+     * @throws IllegalArgumentException if two of the projects have the same id
      */
     public void setProjects(List<Project> incomingProjects) {
-        this.projects.clear();
+        long start = Metrics.start();
+        SetProjectsEvent event = new SetProjectsEvent();
+        event.begin();
+        try {
+            replaceProjects(incomingProjects);
+            if (event.shouldCommit())
+                event.commit(incomingProjects.size(), loadedTaskCount(incomingProjects));
+        } finally {
+            Metrics.record(TimedOperation.MANAGER_SET_PROJECTS, start);
+        }
+    }
+
+    private void replaceProjects(List<Project> incomingProjects) {
+        // the new maps and index are built aside and checked before anything is replaced
+        Map<Integer, Project> newProjects = new ConcurrentSkipListMap<>();
+        Map<String, Project> newProjectsByTitle = new ConcurrentHashMap<>(incomingProjects.size());
+        TrigramIndex newTitleIndex = new TrigramIndex();
+        int highestId = 0;
         for (Project p : incomingProjects) {
-            this.nextProjectId = p.getId();
-            addProject(p.getTitle(), p.getDescription());
-        }
-        for (int i = 0; i < projects.size(); i++) {
-            for (Task t : incomingProjects.get(i).getTasks()) {
-                Task createdTask = projects.get(i).addTask(t.getDescription(), t.getPrio());
-                createdTask.setTakenBy(t.getTakenBy());
-                createdTask.setPrio(t.getPrio());
-                createdTask.setState(t.getState());
+            if (newProjects.putIfAbsent(p.getId(), p) != null)
+                throw new IllegalArgumentException("Id " + p.getId() + " taken by another project.");
+            if (newProjectsByTitle.putIfAbsent(CaseFolding.fold(p.getTitle()), p) != null)
+                throw new TitleNotUniqueException("Title already taken by another project.");
+            newTitleIndex.add(p.getId(), p.getTitle());
+            highestId = Math.max(highestId, p.getId());
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (Project p : this.projects.values()) {
+                for (IProjectListener l : listeners) {
+                    p.removeListener(l);
+                }
             }
+            for (Project p : incomingProjects) {
+                attach(p);
+            }
+            this.projects = newProjects;
+            this.projectsByTitle = newProjectsByTitle;
+            this.titleIndex = newTitleIndex;
+            this.nextProjectId = highestId + 1;
+        } finally {
+            lock.writeLock().unlock();
         }
+    }
 
+    /**
+     * @param projects the projects
+     * @return the number of tasks of the projects whose tasks are loaded, without loading the others
+     */
+    private static long loadedTaskCount(List<Project> projects) {
+        long tasks = 0;
+        for (Project p : projects) {
+            if (p.isLoaded())
+                tasks += p.getTaskCount();
+        }
+        return tasks;
     }
 
     /**
-     * Checks if the given {@code title} is unique within the {@code projects} list.
+     * Checks if the given {@code title} is unique within {@code projects}.
      *
      * @param title to be searched if is unique
      * @return {@code true} if the title does not already exist in the list, {@code false} otherwise
      */
     public boolean isTitleUnique(String title) {
-        for (Project p : projects) {
-            if (p.getTitle().equalsIgnoreCase(title))
-                return false;
-        }
-        return true;
+        return !projectsByTitle.containsKey(CaseFolding.fold(title));
     }
 
 
 
     /**
      * Creates a new project with the given title and description.
-     * The project is added to the list {@code projects}, {@code nextProjectId} variable is incremented.
+     * The project is added to {@code projects}, {@code nextProjectId} variable is incremented.
      *
      * @param title of the new project
      * @param description of the new project
@@ -71,23 +153,92 @@ public class ProjectsManager {
      * @return the newly created project
      */
     public Project addProject(String title, String description) {
-        if (!isTitleUnique(title))
-            throw new TitleNotUniqueException("Title already taken by another project.");
+        lock.writeLock().lock();
+        try {
+            if (!isTitleUnique(title))
+                throw new TitleNotUniqueException("Title already taken by another project.");
+            Project project = new Project(title, description, nextProjectId);
+            this.nextProjectId++;
+            attach(project);
+            // listeners learn about the project before any other thread can change it
+            for (IProjectListener l : listeners) {
+                l.projectAdded(project);
+            }
+            publish(project);
+            return project;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void attach(Project project) {
+        for (IProjectListener l : listeners) {
+            project.addListener(l);
+        }
+    }
 
-        Project project = new Project(title, description, nextProjectId);
-        this.projects.add(project);
-        this.nextProjectId = getHighestId();
-        this.nextProjectId++;
-        return project;
+    private void publish(Project project) {
+        this.projects.put(project.getId(), project);
+        this.projectsByTitle.put(CaseFolding.fold(project.getTitle()), project);
+        this.titleIndex.add(project.getId(), project.getTitle());
     }
 
     /**
-     * Removes a project from {@code projects} list.
+     * Removes a project from {@code projects}. The project is looked up by its id.
      *
      * @param project to be removed
      */
     public void removeProject(Project project) {
-        this.projects.remove(project);
+        lock.writeLock().lock();
+        try {
+            Project existing = projects.get(project.getId());
+            if (existing != null && existing.equals(project)) {
+                projects.remove(existing.getId());
+                projectsByTitle.remove(CaseFolding.fold(existing.getTitle()));
+                titleIndex.remove(existing.getId());
+                for (IProjectListener l : listeners) {
+                    existing.removeListener(l);
+                    l.projectRemoved(existing);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a listener that is notified when projects are added or removed, and when tasks are added to,
+     * removed from or updated in any of the projects.
+     *
+     * @param listener the listener to add
+     */
+    public void addListener(IProjectListener listener) {
+        lock.writeLock().lock();
+        try {
+            listeners.add(listener);
+            for (Project p : projects.values()) {
+                p.addListener(listener);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a listener added with {@link #addListener(IProjectListener)}.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeListener(IProjectListener listener) {
+        lock.writeLock().lock();
+        try {
+            listeners.remove(listener);
+            for (Project p : projects.values()) {
+                p.removeListener(listener);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     /**
@@ -97,47 +248,126 @@ public class ProjectsManager {
      * @return the searched project if the id exists in the list, {@code null} otherwise
      */
     public Project getProjectById(int id) {
-        for (Project p : projects) {
-            if (p.getId() == id)
-                return p;
-        }
-        return null;
+        return projects.get(id);
     }
 
     /**
-     * Finds projects that contains the given {@code title}.
+     * Finds projects whose title contains the given {@code titleStr}, ignoring case.
+     * The projects are returned in order of their id.
      *
      * @param titleStr to search for the projects
      * @return a list of projects with matching title
      */
     public List<Project> findProjects(String titleStr) {
-        List<Project> matchingProjects = new ArrayList<>();
-        for (Project p : projects) {
-            if (p.getTitle().toLowerCase().contains(titleStr.toLowerCase()))
-                matchingProjects.add(p);
+        lock.readLock().lock();
+        try {
+            BitSet ids = titleIndex.find(titleStr);
+            List<Project> matchingProjects = new ArrayList<>(ids.cardinality());
+            for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+                matchingProjects.add(projects.get(id));
+            }
+            return matchingProjects;
+        } finally {
+            lock.readLock().unlock();
         }
-        return matchingProjects;
     }
 
     /**
+     * Finds the tasks that matches the given criteria in all projects.
+     * The tasks of each project are in descending order of their id, as returned by
+     * {@link Project#findTasks(ITaskMatcher)}, and the projects are in the same order as in {@code projects}.
+     * Projects without any matching task are left out.
+     * <p>
+     * If the projects together hold at least {@code parallelThreshold} tasks, the projects are searched
+     * in parallel, and a project that on its own holds that many tasks is also split up between threads.
+     * Otherwise the search is made on the calling thread. The projects are read under their own read locks,
+     * so searches never block each other, but projects may be changed by other threads during the search.
      *
-     * @return the highest project id
+     * @param matcher criteria used to find the tasks
+     * @return the matching tasks of each project
      */
-    private int getHighestId() {
-        int highest = 0;
-        for (Project p : projects) {
-            if (p.getId() > highest)
-                highest = p.getId();
+    public Map<Project, List<Task>> findTasks(ITaskMatcher matcher) {
+        long start = Metrics.start();
+        try {
+            return collectTasks(matcher);
+        } finally {
+            Metrics.record(TimedOperation.MANAGER_FIND_TASKS, start);
+        }
+    }
+
+    private Map<Project, List<Task>> collectTasks(ITaskMatcher matcher) {
+        List<Project> toSearch = List.copyOf(projects.values());
+        long taskCount = 0;
+        for (Project p : toSearch) {
+            taskCount += p.getTaskCount();
+        }
+
+        List<List<Task>> found;
+        if (taskCount < parallelThreshold) {
+            found = new ArrayList<>(toSearch.size());
+            for (Project p : toSearch) {
+                found.add(p.findTasks(matcher));
+            }
+        } else {
+            found = toSearch.parallelStream()
+                    .map(p -> p.getTaskCount() < parallelThreshold ? p.findTasks(matcher)
+                            : p.streamTasks(matcher).parallel().toList())
+                    .toList();
+        }
+
+        Map<Project, List<Task>> result = new LinkedHashMap<>();
+        for (int i = 0; i < toSearch.size(); i++) {
+            if (!found.get(i).isEmpty())
+                result.put(toSearch.get(i), found.get(i));
         }
-        return highest;
+        return result;
     }
 
     /**
+     * Finds the tasks in all projects whose description contains all words of the given query,
+     * as matched by {@link DescriptionMatcher}. The search is made as in {@link #findTasks(ITaskMatcher)}.
      *
-     * @return copy of the list {@code projects}
+     * @param query the words to search for, a word ending with {@code *} is a prefix
+     * @return the matching tasks of each project
+     */
+    public Map<Project, List<Task>> searchTasks(String query) {
+        return findTasks(new DescriptionMatcher(query));
+    }
+
+    /**
+     *
+     * @return the number of tasks from which {@link #findTasks(ITaskMatcher)} searches in parallel
+     */
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * Sets the number of tasks from which {@link #findTasks(ITaskMatcher)} searches in parallel.
+     * Use {@code 0} to always search in parallel and {@link Integer#MAX_VALUE} to never do it.
+     *
+     * @param parallelThreshold the number of tasks
+     * @throws IllegalArgumentException if {@code parallelThreshold} is negative
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        if (parallelThreshold < 0)
+            throw new IllegalArgumentException("parallelThreshold is negative");
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Returns the projects, waiting for projects that are being added or removed, so that a project is
+     * returned if and only if listeners have been notified about it being added and not about it being removed.
+     *
+     * @return a list of the projects in {@code projects}
      */
     public List<Project> getProjects() {
-        return List.copyOf(projects);
+        lock.readLock().lock();
+        try {
+            return List.copyOf(projects.values());
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     /**
@@ -151,7 +381,7 @@ public class ProjectsManager {
    @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
-        for (Project p : projects) {
+        for (Project p : projects.values()) {
             builder.append(p.toString()).append("\n");
         }
         return builder.toString();
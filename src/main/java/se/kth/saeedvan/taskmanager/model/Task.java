@@ -1,30 +1,82 @@
 package se.kth.saeedvan.taskmanager.model;
 
+import se.kth.saeedvan.taskmanager.model.exceptions.TaskConflictException;
+
 import java.io.Serializable;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * This class represents logic and data for a task.
  * <p>
  * Does not handle storing and printing of elements.
+ * <p>
+ * A task is changed while holding the write lock of its {@link Project}, so that the project and its indexes
+ * are never seen half updated by other threads. The fields can be read without the lock, but several fields
+ * are only read consistently while holding the read lock, as {@link Project#findTasks} does.
+ * <p>
+ * Every change increments the version of the task. The steps of the workflow, {@link #transition}, check
+ * that the step is allowed and make it in one atomic step, so that several users can take tasks at the
+ * same time without one of them overwriting the change of another.
+ * <p>
+ * A project with {@link TaskStorage#COLUMNS} keeps the values of its tasks in arrays and hands out tasks
+ * that are views of them: reading or changing a view reads or changes the arrays, so all views of a task
+ * see the same values, and a view is serialized as a task of its own.
  *
  * @author Saeed Kassab
  * @author Van Matti
  * @serial
  */
 public class Task implements Comparable<Task>, Serializable {
+    /**
+     * The version to pass to {@link #transition} to make the step in whatever version the task is.
+     */
+    public static final int ANY_VERSION = -1;
+    private static final long serialVersionUID = -7022298512492990097L;
+
     private String description;
     private final int id;
-    private String takenBy;
-    private TaskState state;
-    private LocalDate lastUpdate;
-    private TaskPrio prio;
+    private volatile String takenBy;
+    private volatile TaskState state;
+    private volatile LocalDate lastUpdate;
+    private volatile TaskPrio prio;
+    private transient List<ITaskListener> listeners;
+    // the lock of the project the task belongs to
+    private transient ReadWriteLock lock;
+    // incremented on every change, while holding the write lock
+    private transient volatile int version;
+    // the arrays that hold the values of a view, the fields above are then not used
+    private final transient TaskColumns columns;
 
     protected Task(String description, TaskPrio prio, int id) {
         this.description = description;
         this.prio = prio;
         this.id = id;
         this.takenBy = null;
+        this.columns = null;
+    }
+
+    protected Task(String description, TaskPrio prio, int id, TaskState state, String takenBy, LocalDate lastUpdate) {
+        this.description = description;
+        this.prio = prio;
+        this.id = id;
+        this.state = state;
+        this.takenBy = takenBy;
+        this.lastUpdate = lastUpdate;
+        this.columns = null;
+    }
+
+    /**
+     * Creates a view of the task with the given id in the columns.
+     */
+    Task(TaskColumns columns, int id) {
+        this.id = id;
+        this.columns = columns;
+        this.lock = columns.getLock();
     }
 
     /**
@@ -35,11 +87,18 @@ public class Task implements Comparable<Task>, Serializable {
      * @throws IllegalStateException if the task is already taken
      */
     public void setTakenBy(String takenBy) throws IllegalStateException {
-        if(this.takenBy != null)
-            throw new IllegalStateException("Already taken!");
+        Lock l = writeLock();
+        l.lock();
+        try {
+            if(getTakenBy() != null)
+                throw new TaskConflictException("Already taken!", getState(), getTakenBy(), getVersion());
 
-        this.takenBy = takenBy;
-        this.lastUpdate = LocalDate.now();
+            LocalDate oldLastUpdate = getLastUpdate();
+            change(getState(), getPrio(), takenBy);
+            updated(getState(), getPrio(), null, oldLastUpdate);
+        } finally {
+            l.unlock();
+        }
     }
 
     /**
@@ -49,8 +108,16 @@ public class Task implements Comparable<Task>, Serializable {
      * @param state the new state to set
      */
     public void setState(TaskState state) {
-        this.state = state;
-        this.lastUpdate = LocalDate.now();
+        Lock l = writeLock();
+        l.lock();
+        try {
+            TaskState oldState = getState();
+            LocalDate oldLastUpdate = getLastUpdate();
+            change(state, getPrio(), getTakenBy());
+            updated(oldState, getPrio(), getTakenBy(), oldLastUpdate);
+        } finally {
+            l.unlock();
+        }
     }
 
     /**
@@ -60,8 +127,142 @@ public class Task implements Comparable<Task>, Serializable {
      * @param prio the new priority to set
      */
     public void setPrio(TaskPrio prio) {
+        Lock l = writeLock();
+        l.lock();
+        try {
+            TaskPrio oldPrio = getPrio();
+            LocalDate oldLastUpdate = getLastUpdate();
+            change(getState(), prio, getTakenBy());
+            updated(getState(), oldPrio, getTakenBy(), oldLastUpdate);
+        } finally {
+            l.unlock();
+        }
+    }
+
+    /**
+     * Takes the task for the given user, if nobody has taken it. See {@link #transition}.
+     *
+     * @param takenBy the username of the user who takes the task
+     * @return the new version of the task
+     * @throws TaskConflictException if the task is already taken
+     */
+    public int take(String takenBy) throws TaskConflictException {
+        return transition(TaskTransition.TAKE, takenBy, ANY_VERSION);
+    }
+
+    /**
+     * Starts the task, if it has been taken. See {@link #transition}.
+     *
+     * @return the new version of the task
+     * @throws TaskConflictException if the task has not been taken
+     */
+    public int start() throws TaskConflictException {
+        return transition(TaskTransition.START, null, ANY_VERSION);
+    }
+
+    /**
+     * Finishes the task, if it is in progress. See {@link #transition}.
+     *
+     * @return the new version of the task
+     * @throws TaskConflictException if the task is not in progress
+     */
+    public int finish() throws TaskConflictException {
+        return transition(TaskTransition.FINISH, null, ANY_VERSION);
+    }
+
+    /**
+     * Makes a step of the workflow if the step is allowed in the current state of the task and the task
+     * is still in the {@code expectedVersion}, for example the version it was in when it was shown to the user.
+     * Checking and changing the task is one atomic step, so of several users making a step at the same time,
+     * only the ones that are still allowed after the steps before them succeed. Otherwise the task is left
+     * unchanged and the exception tells the state the task was in.
+     *
+     * @param transition the step to make
+     * @param takenBy the username of the user who takes the task, only used by {@link TaskTransition#TAKE}
+     * @param expectedVersion the version the task must be in, or {@link #ANY_VERSION}
+     * @return the new version of the task
+     * @throws TaskConflictException if the step is not allowed or the task is in another version
+     */
+    public int transition(TaskTransition transition, String takenBy, int expectedVersion) throws TaskConflictException {
+        Lock l = writeLock();
+        l.lock();
+        try {
+            TaskState oldState = getState();
+            String oldTakenBy = getTakenBy();
+            int oldVersion = getVersion();
+            if (expectedVersion != ANY_VERSION && expectedVersion != oldVersion)
+                throw new TaskConflictException("Task was changed by someone else", oldState, oldTakenBy, oldVersion);
+            if (!transition.isAllowed(oldState, oldTakenBy))
+                throw new TaskConflictException(transition.getRefusal(), oldState, oldTakenBy, oldVersion);
+
+            LocalDate oldLastUpdate = getLastUpdate();
+            change(transition.getTarget(), getPrio(), transition == TaskTransition.TAKE ? takenBy : oldTakenBy);
+            updated(oldState, getPrio(), oldTakenBy, oldLastUpdate);
+            return getVersion();
+        } finally {
+            l.unlock();
+        }
+    }
+
+    /**
+     * Adds a listener that is notified every time state, priority or taken by of this task is set.
+     * The owning {@link Project} uses this to keep its indexes and aggregates current.
+     * Listeners are not serialized.
+     *
+     * @param listener the listener to add
+     */
+    public void addListener(ITaskListener listener) {
+        if (listeners == null)
+            listeners = new ArrayList<>(1);
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added with {@link #addListener(ITaskListener)}.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeListener(ITaskListener listener) {
+        if (listeners != null)
+            listeners.remove(listener);
+    }
+
+    /**
+     * Sets the lock that guards changes of this task, the lock of the project it is added to.
+     */
+    void setLock(ReadWriteLock lock) {
+        this.lock = lock;
+    }
+
+    private Lock writeLock() {
+        // a task is always created by a project, the own lock is only for tasks read on their own
+        if (lock == null)
+            lock = new ReentrantReadWriteLock();
+        return lock.writeLock();
+    }
+
+    // sets the values, the date of the last update and the next version, while holding the write lock
+    private void change(TaskState state, TaskPrio prio, String takenBy) {
+        LocalDate now = LocalDate.now();
+        if (columns != null) {
+            columns.write(id, state, prio, takenBy, now);
+            return;
+        }
+        this.state = state;
         this.prio = prio;
-        this.lastUpdate = LocalDate.now();
+        this.takenBy = takenBy;
+        this.lastUpdate = now;
+        version++;
+    }
+
+    private void updated(TaskState oldState, TaskPrio oldPrio, String oldTakenBy, LocalDate oldLastUpdate) {
+        if (columns != null)
+            columns.updated(this, oldState, oldPrio, oldTakenBy, oldLastUpdate);
+        if (listeners == null)
+            return;
+        for (ITaskListener l : listeners) {
+            l.taskUpdated(this, oldState, oldPrio, oldTakenBy, oldLastUpdate);
+        }
     }
 
     /**
@@ -74,12 +275,12 @@ public class Task implements Comparable<Task>, Serializable {
      */
     @Override
     public int compareTo(Task other) {
-        if (this.prio.getValue() < other.prio.getValue())
+        if (this.getPrio().getValue() < other.getPrio().getValue())
             return -1;
-        else if (this.prio.getValue() > other.prio.getValue())
+        else if (this.getPrio().getValue() > other.getPrio().getValue())
             return 1;
-        else if (this.prio == other.prio) {
-            return this.description.compareTo(other.description);
+        else if (this.getPrio() == other.getPrio()) {
+            return this.getDescription().compareTo(other.getDescription());
         }
         return 0;
     }
@@ -95,13 +296,13 @@ public class Task implements Comparable<Task>, Serializable {
         if (this == obj) return true;
         if(obj instanceof Task otherTask)
         {
-            return (otherTask.prio == this.prio && otherTask.description == this.description);
+            return (otherTask.getPrio() == this.getPrio() && otherTask.getDescription() == this.getDescription());
         }
         return false;
     }
 
     public String getDescription() {
-        return description;
+        return columns == null ? description : columns.getDescription(id);
     }
 
     public int getId() {
@@ -109,19 +310,26 @@ public class Task implements Comparable<Task>, Serializable {
     }
 
     public String getTakenBy() {
-        return takenBy;
+        return columns == null ? takenBy : columns.getTakenBy(id);
     }
 
     public TaskState getState() {
-        return state;
+        return columns == null ? state : columns.getState(id);
     }
 
     public LocalDate getLastUpdate() {
-        return lastUpdate;
+        return columns == null ? lastUpdate : columns.getLastUpdate(id);
     }
 
     public TaskPrio getPrio() {
-        return prio;
+        return columns == null ? prio : columns.getPrio(id);
+    }
+
+    /**
+     * @return the number of changes made to the task since it was created or loaded
+     */
+    public int getVersion() {
+        return columns == null ? version : columns.getVersion(id);
     }
 
     @Override
@@ -129,13 +337,20 @@ public class Task implements Comparable<Task>, Serializable {
         return  "-----------------------\n" +
                 "|       TASK          |\n" +
                 "-----------------------\n" +
-                " description: " + description + "\n" +
+                " description: " + getDescription() + "\n" +
                 " id: " + id + "\n" +
-                " taken by: " + takenBy + "\n" +
-                " state: " + state + "\n" +
-                " prio: " + prio + "\n" +
-                " last update: " + lastUpdate + "\n" +
+                " taken by: " + getTakenBy() + "\n" +
+                " state: " + getState() + "\n" +
+                " prio: " + getPrio() + "\n" +
+                " last update: " + getLastUpdate() + "\n" +
                 "-----------------------\n";
     }
 
+    // a view is written as a task of its own, since the columns are not serialized
+    private Object writeReplace() {
+        if (columns == null)
+            return this;
+        return new Task(getDescription(), getPrio(), id, getState(), getTakenBy(), getLastUpdate());
+    }
+
 }
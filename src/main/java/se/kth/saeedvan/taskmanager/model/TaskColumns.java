@@ -0,0 +1,268 @@
+package se.kth.saeedvan.taskmanager.model;
+
+import java.time.LocalDate;
+import java.util.AbstractCollection;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Store of {@link TaskStorage#COLUMNS}: the values of the tasks in one array per field, indexed by the id
+ * of the task, and {@link Task} views that read and change them.
+ * <p>
+ * State and priority are kept as a byte, the date of the last update as the number of days since 1970, and
+ * who has taken a task as the number of the user in a list where each user is kept once. A task then takes
+ * some 20 bytes besides its description, where a task object with its date, listener list and map entry
+ * takes some 200. The values of a removed task are kept until its id is used again, so that views of it
+ * still read its last values, as a removed task object would.
+ * <p>
+ * The arrays are changed while holding the write lock of the project, by the project and by the views.
+ * Views read the arrays while holding the read lock, so a value is never read while it is being changed.
+ */
+final class TaskColumns implements ITaskStore {
+    private static final TaskState[] STATES = TaskState.values();
+    private static final TaskPrio[] PRIOS = TaskPrio.values();
+    // stored for a state or priority that is not set, the others are stored as their ordinal + 1
+    private static final byte NONE = 0;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final int NOBODY = -1;
+    private static final int MIN_CAPACITY = 16;
+
+    private final ReentrantReadWriteLock lock;
+    private final ITaskListener listener;
+    private final BitSet present = new BitSet();
+    private int size;
+    private String[] descriptions = new String[0];
+    private byte[] states = new byte[0];
+    private byte[] prios = new byte[0];
+    private int[] lastUpdates = new int[0];
+    private int[] takenBy = new int[0];
+    private int[] versions = new int[0];
+    // the users who have taken tasks, the number of a user is its place in the list
+    private final List<String> users = new ArrayList<>();
+    private final Map<String, Integer> userNumbers = new HashMap<>();
+    // built on first use, dropped when a task is added or removed
+    private volatile List<Task> snapshot;
+
+    /**
+     * @param lock the lock of the project, which the arrays are read and changed under
+     * @param listener the listener of the project, notified when a task is changed through a view
+     */
+    TaskColumns(ReentrantReadWriteLock lock, ITaskListener listener) {
+        this.lock = lock;
+        this.listener = listener;
+    }
+
+    ReentrantReadWriteLock getLock() {
+        return lock;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Task get(int id) {
+        return id >= 0 && present.get(id) ? new Task(this, id) : null;
+    }
+
+    @Override
+    public Task put(Task task) {
+        int id = task.getId();
+        ensureCapacity(id + 1);
+        if (!present.get(id)) {
+            present.set(id);
+            size++;
+            snapshot = null;
+        }
+        descriptions[id] = task.getDescription();
+        write(id, task.getState(), task.getPrio(), task.getTakenBy(), task.getLastUpdate());
+        versions[id] = task.getVersion();
+        return new Task(this, id);
+    }
+
+    @Override
+    public void remove(int id) {
+        present.clear(id);
+        size--;
+        snapshot = null;
+    }
+
+    @Override
+    public Collection<Task> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Task> iterator() {
+                return new Iterator<>() {
+                    private int next = present.nextSetBit(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return next >= 0;
+                    }
+
+                    @Override
+                    public Task next() {
+                        if (next < 0)
+                            throw new NoSuchElementException();
+                        Task t = new Task(TaskColumns.this, next);
+                        next = present.nextSetBit(next + 1);
+                        return t;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public List<Task> snapshot() {
+        List<Task> s = snapshot;
+        if (s != null)
+            return s;
+        lock.readLock().lock();
+        try {
+            if (snapshot == null)
+                snapshot = new Snapshot(present.stream().toArray());
+            return snapshot;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // the ids at one moment, the views read the current values
+    private final class Snapshot extends AbstractList<Task> implements RandomAccess {
+        private final int[] ids;
+
+        Snapshot(int[] ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public Task get(int index) {
+            return new Task(TaskColumns.this, ids[index]);
+        }
+
+        @Override
+        public int size() {
+            return ids.length;
+        }
+    }
+
+    /**
+     * Sets state, priority, taken by and last update of a task and increments its version.
+     * Called while holding the write lock.
+     */
+    void write(int id, TaskState state, TaskPrio prio, String takenBy, LocalDate lastUpdate) {
+        states[id] = state == null ? NONE : (byte) (state.ordinal() + 1);
+        prios[id] = prio == null ? NONE : (byte) (prio.ordinal() + 1);
+        this.takenBy[id] = takenBy == null ? NOBODY : userNumber(takenBy);
+        lastUpdates[id] = lastUpdate == null ? NO_DATE : (int) lastUpdate.toEpochDay();
+        versions[id]++;
+    }
+
+    /**
+     * Notifies the project that a task was changed through a view, unless the task has been removed.
+     */
+    void updated(Task task, TaskState oldState, TaskPrio oldPrio, String oldTakenBy, LocalDate oldLastUpdate) {
+        if (present.get(task.getId()))
+            listener.taskUpdated(task, oldState, oldPrio, oldTakenBy, oldLastUpdate);
+    }
+
+    String getDescription(int id) {
+        Lock l = lock.readLock();
+        l.lock();
+        try {
+            return descriptions[id];
+        } finally {
+            l.unlock();
+        }
+    }
+
+    TaskState getState(int id) {
+        Lock l = lock.readLock();
+        l.lock();
+        try {
+            return states[id] == NONE ? null : STATES[states[id] - 1];
+        } finally {
+            l.unlock();
+        }
+    }
+
+    TaskPrio getPrio(int id) {
+        Lock l = lock.readLock();
+        l.lock();
+        try {
+            return prios[id] == NONE ? null : PRIOS[prios[id] - 1];
+        } finally {
+            l.unlock();
+        }
+    }
+
+    String getTakenBy(int id) {
+        Lock l = lock.readLock();
+        l.lock();
+        try {
+            return takenBy[id] == NOBODY ? null : users.get(takenBy[id]);
+        } finally {
+            l.unlock();
+        }
+    }
+
+    LocalDate getLastUpdate(int id) {
+        Lock l = lock.readLock();
+        l.lock();
+        try {
+            return lastUpdates[id] == NO_DATE ? null : LocalDate.ofEpochDay(lastUpdates[id]);
+        } finally {
+            l.unlock();
+        }
+    }
+
+    int getVersion(int id) {
+        Lock l = lock.readLock();
+        l.lock();
+        try {
+            return versions[id];
+        } finally {
+            l.unlock();
+        }
+    }
+
+    private int userNumber(String user) {
+        Integer number = userNumbers.get(user);
+        if (number == null) {
+            number = users.size();
+            users.add(user);
+            userNumbers.put(user, number);
+        }
+        return number;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= states.length)
+            return;
+        int newCapacity = Math.max(capacity, Math.max(MIN_CAPACITY, states.length + (states.length >> 1)));
+        descriptions = Arrays.copyOf(descriptions, newCapacity);
+        states = Arrays.copyOf(states, newCapacity);
+        prios = Arrays.copyOf(prios, newCapacity);
+        lastUpdates = Arrays.copyOf(lastUpdates, newCapacity);
+        takenBy = Arrays.copyOf(takenBy, newCapacity);
+        versions = Arrays.copyOf(versions, newCapacity);
+    }
+}
@@ -0,0 +1,285 @@
+package se.kth.saeedvan.taskmanager.model;
+
+import se.kth.saeedvan.taskmanager.model.matcher.*;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Secondary indexes over the tasks of one project, on state, priority, who has taken the task and
+ * the words of the description, together with the number of tasks in each state and the dates of the last updates.
+ * <p>
+ * The indexes on state and priority are {@link BitSet}s with one bit per task id. Who has taken a task
+ * and the words of the description have many different values, each held by few tasks, so they are
+ * indexed with {@link IdPostings}. The index is kept current by
+ * {@link Project}, which listens to its tasks and is notified whenever state, priority or taken by changes.
+ */
+class TaskIndex {
+    private final BitSet all;
+    private final Map<TaskState, BitSet> byState;
+    private final Map<TaskPrio, BitSet> byPrio;
+    private final Map<String, IdPostings> byTakenBy;
+    private final DescriptionIndex byDescription;
+    private final int[] stateCounts;
+    // number of tasks last updated on each date
+    private final NavigableMap<LocalDate, Integer> lastUpdates;
+
+    TaskIndex() {
+        this.all = new BitSet();
+        this.byState = new EnumMap<>(TaskState.class);
+        this.byPrio = new EnumMap<>(TaskPrio.class);
+        this.byTakenBy = new HashMap<>();
+        this.byDescription = new DescriptionIndex();
+        this.stateCounts = new int[TaskState.values().length];
+        this.lastUpdates = new TreeMap<>();
+    }
+
+    /**
+     * Builds the index of the given tasks in one pass, for loading a project. The sets have room for the
+     * highest id from the start, and the words and dates are counted in hash maps and sorted once,
+     * instead of updating the sorted maps for every task.
+     *
+     * @param tasks the tasks to index, with distinct ids
+     */
+    TaskIndex(Collection<Task> tasks) {
+        int maxId = -1;
+        for (Task t : tasks) {
+            maxId = Math.max(maxId, t.getId());
+        }
+        this.all = new BitSet(maxId + 1);
+        this.byState = new EnumMap<>(TaskState.class);
+        this.byPrio = new EnumMap<>(TaskPrio.class);
+        this.byTakenBy = new HashMap<>();
+        this.stateCounts = new int[TaskState.values().length];
+        Map<LocalDate, Integer> dates = new HashMap<>();
+        for (Task t : tasks) {
+            addToSets(t, maxId + 1);
+            if (t.getLastUpdate() != null)
+                dates.merge(t.getLastUpdate(), 1, Integer::sum);
+        }
+        this.lastUpdates = new TreeMap<>(dates);
+        this.byDescription = new DescriptionIndex(tasks);
+    }
+
+    /**
+     * @param state the state to count
+     * @return the number of tasks in the given state
+     */
+    int count(TaskState state) {
+        return stateCounts[state.ordinal()];
+    }
+
+    /**
+     * @return the latest date any task was updated, or {@code null} if no task has been updated
+     */
+    LocalDate lastUpdate() {
+        return lastUpdates.isEmpty() ? null : lastUpdates.lastKey();
+    }
+
+    void add(Task task) {
+        addToSets(task, 64);
+        byDescription.add(task);
+        countUpdate(task.getLastUpdate(), 1);
+    }
+
+    private void addToSets(Task task, int initialBits) {
+        int id = task.getId();
+        all.set(id);
+        if (task.getState() != null) {
+            byState.computeIfAbsent(task.getState(), s -> new BitSet(initialBits)).set(id);
+            stateCounts[task.getState().ordinal()]++;
+        }
+        if (task.getPrio() != null)
+            byPrio.computeIfAbsent(task.getPrio(), p -> new BitSet(initialBits)).set(id);
+        if (task.getTakenBy() != null)
+            byTakenBy.computeIfAbsent(CaseFolding.fold(task.getTakenBy()), n -> new IdPostings()).add(id);
+    }
+
+    void remove(Task task) {
+        int id = task.getId();
+        all.clear(id);
+        clear(byState, task.getState(), id);
+        if (task.getState() != null)
+            stateCounts[task.getState().ordinal()]--;
+        clear(byPrio, task.getPrio(), id);
+        removePosting(CaseFolding.fold(task.getTakenBy()), id);
+        byDescription.remove(task);
+        countUpdate(task.getLastUpdate(), -1);
+    }
+
+    /**
+     * Moves the task to the right buckets after state, priority or taken by has changed.
+     *
+     * @param task the updated task
+     * @param oldState the state before the update
+     * @param oldPrio the priority before the update
+     * @param oldTakenBy taken by before the update
+     * @param oldLastUpdate the date of the last update before this update
+     */
+    void update(Task task, TaskState oldState, TaskPrio oldPrio, String oldTakenBy, LocalDate oldLastUpdate) {
+        int id = task.getId();
+        if (oldState != task.getState()) {
+            clear(byState, oldState, id);
+            if (oldState != null)
+                stateCounts[oldState.ordinal()]--;
+            if (task.getState() != null) {
+                byState.computeIfAbsent(task.getState(), s -> new BitSet()).set(id);
+                stateCounts[task.getState().ordinal()]++;
+            }
+        }
+        if (!Objects.equals(oldLastUpdate, task.getLastUpdate())) {
+            countUpdate(oldLastUpdate, -1);
+            countUpdate(task.getLastUpdate(), 1);
+        }
+        if (oldPrio != task.getPrio()) {
+            clear(byPrio, oldPrio, id);
+            if (task.getPrio() != null)
+                byPrio.computeIfAbsent(task.getPrio(), p -> new BitSet()).set(id);
+        }
+        String oldKey = CaseFolding.fold(oldTakenBy);
+        String newKey = CaseFolding.fold(task.getTakenBy());
+        if (oldKey == null ? newKey != null : !oldKey.equals(newKey)) {
+            removePosting(oldKey, id);
+            if (newKey != null)
+                byTakenBy.computeIfAbsent(newKey, n -> new IdPostings()).add(id);
+        }
+    }
+
+    /**
+     * Returns the ids of all tasks in the index. The returned set is a copy.
+     *
+     * @return the ids of all tasks
+     */
+    BitSet all() {
+        return (BitSet) all.clone();
+    }
+
+    /**
+     * Plans how to answer the given matcher with the index.
+     * <p>
+     * The leaf matchers {@link NotDoneMatcher}, {@link PrioMatcher}, {@link TakenByMatcher} and
+     * {@link DescriptionMatcher} are answered exactly from the index. For an {@link AndMatcher} the indexable children are intersected,
+     * most selective first, and the other children are left as a residual matcher, with the children
+     * that were narrowed by the index tested before the ones that were not. An {@link OrMatcher} is
+     * indexable if all of its children are, and a {@link NotMatcher} if its child is answered exactly.
+     *
+     * @param matcher the matcher to plan
+     * @return the plan, or {@code null} if the index can not narrow the search and all tasks must be tested
+     */
+    Plan plan(ITaskMatcher matcher) {
+        if (matcher instanceof NotDoneMatcher) {
+            BitSet ids = all();
+            BitSet done = byState.get(TaskState.DONE);
+            if (done != null)
+                ids.andNot(done);
+            return new Plan(ids, null);
+        }
+        if (matcher instanceof PrioMatcher m)
+            return new Plan(copyOf(byPrio.get(m.getPrio())), null);
+        if (matcher instanceof TakenByMatcher m) {
+            IdPostings ids = m.getTakenBy() == null ? null : byTakenBy.get(CaseFolding.fold(m.getTakenBy()));
+            return new Plan(ids == null ? new BitSet() : ids.toBitSet(), null);
+        }
+        if (matcher instanceof DescriptionMatcher m)
+            return new Plan(byDescription.find(m, all), null);
+        if (matcher instanceof AndMatcher m)
+            return planAnd(m);
+        if (matcher instanceof OrMatcher m)
+            return planOr(m);
+        if (matcher instanceof NotMatcher m) {
+            Plan child = plan(m.getMatcher());
+            if (child == null || !child.isExact())
+                return null;
+            BitSet ids = all();
+            ids.andNot(child.ids());
+            return new Plan(ids, null);
+        }
+        return null;
+    }
+
+    private Plan planAnd(AndMatcher matcher) {
+        List<Plan> indexed = new ArrayList<>();
+        List<ITaskMatcher> notIndexed = new ArrayList<>();
+        for (ITaskMatcher m : matcher.getMatchers()) {
+            Plan p = plan(m);
+            if (p == null)
+                notIndexed.add(m);
+            else
+                indexed.add(p);
+        }
+        if (indexed.isEmpty())
+            return null;
+
+        indexed.sort(Comparator.comparingInt(p -> p.ids().cardinality()));
+        BitSet ids = indexed.get(0).ids();
+        List<ITaskMatcher> residual = new ArrayList<>();
+        for (Plan p : indexed) {
+            if (p != indexed.get(0) && !ids.isEmpty())
+                ids.and(p.ids());
+            if (!p.isExact())
+                residual.add(p.residual());
+        }
+        residual.addAll(notIndexed);
+
+        if (residual.isEmpty())
+            return new Plan(ids, null);
+        return new Plan(ids, residual.size() == 1 ? residual.get(0) : new AndMatcher(residual));
+    }
+
+    private Plan planOr(OrMatcher matcher) {
+        BitSet ids = new BitSet();
+        boolean exact = true;
+        for (ITaskMatcher m : matcher.getMatchers()) {
+            Plan p = plan(m);
+            if (p == null)
+                return null;
+            ids.or(p.ids());
+            exact &= p.isExact();
+        }
+        return new Plan(ids, exact ? null : matcher);
+    }
+
+    /**
+     * The ids of the tasks that may match, and the matcher that each of them still has to pass.
+     *
+     * @param ids the candidate task ids, owned by the plan
+     * @param residual the matcher to test the candidates with, or {@code null} if all candidates match
+     */
+    record Plan(BitSet ids, ITaskMatcher residual) {
+
+        boolean isExact() {
+            return residual == null;
+        }
+    }
+
+    private void countUpdate(LocalDate date, int delta) {
+        if (date != null)
+            lastUpdates.merge(date, delta, (a, b) -> a + b == 0 ? null : a + b);
+    }
+
+    private static BitSet copyOf(BitSet ids) {
+        return ids == null ? new BitSet() : (BitSet) ids.clone();
+    }
+
+    private void removePosting(String takenBy, int id) {
+        if (takenBy == null)
+            return;
+        IdPostings ids = byTakenBy.get(takenBy);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty())
+                byTakenBy.remove(takenBy);
+        }
+    }
+
+    private static <K> void clear(Map<K, BitSet> index, K key, int id) {
+        if (key == null)
+            return;
+        BitSet ids = index.get(key);
+        if (ids != null) {
+            ids.clear(id);
+            if (ids.isEmpty())
+                index.remove(key);
+        }
+    }
+}
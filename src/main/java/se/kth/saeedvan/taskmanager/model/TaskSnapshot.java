@@ -0,0 +1,239 @@
+package se.kth.saeedvan.taskmanager.model;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable list of the tasks of a project in order of their id, which shares most of its structure with
+ * the lists it was made from.
+ * <p>
+ * The tasks are held in a trie with 32 children per node, addressed by 5 bits of the id at a time.
+ * Adding or removing a task copies only the nodes on the path to the task, so a new list is made
+ * in a few small steps without copying the tasks, and lists that have been handed out stay unchanged.
+ * Each node knows the number of tasks below it, so a task can also be found by its position in the list.
+ */
+final class TaskSnapshot extends AbstractList<Task> {
+    static final TaskSnapshot EMPTY = new TaskSnapshot(null, 0);
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    // deep enough for all non-negative ids
+    private static final int MAX_DEPTH = 7;
+
+    private final Node root;
+    // the number of bits of the id below the children of the root
+    private final int shift;
+
+    private static final class Node {
+        // tasks in a node at shift 0, nodes otherwise
+        final Object[] slots;
+        // only changed while building a new list, before it is handed out
+        int size;
+
+        Node(Object[] slots, int size) {
+            this.slots = slots;
+            this.size = size;
+        }
+    }
+
+    private TaskSnapshot(Node root, int shift) {
+        this.root = root;
+        this.shift = shift;
+    }
+
+    /**
+     * Builds a list of the given tasks in one pass, filling the nodes in place instead of copying them
+     * for every task.
+     *
+     * @param tasks the tasks, with distinct ids
+     * @return a list of the tasks
+     */
+    static TaskSnapshot of(Collection<Task> tasks) {
+        int maxId = 0;
+        for (Task t : tasks) {
+            maxId = Math.max(maxId, t.getId());
+        }
+        int shift = shiftFor(maxId);
+        Node root = tasks.isEmpty() ? null : new Node(new Object[WIDTH], 0);
+        for (Task t : tasks) {
+            Node node = root;
+            node.size++;
+            for (int s = shift; s > 0; s -= BITS) {
+                int i = (t.getId() >>> s) & MASK;
+                Node child = (Node) node.slots[i];
+                if (child == null) {
+                    child = new Node(new Object[WIDTH], 0);
+                    node.slots[i] = child;
+                }
+                child.size++;
+                node = child;
+            }
+            node.slots[t.getId() & MASK] = t;
+        }
+        return new TaskSnapshot(root, shift);
+    }
+
+    /**
+     * @param task the task to add, or to put in place of the task with the same id
+     * @return a list with the task
+     */
+    TaskSnapshot with(Task task) {
+        int id = task.getId();
+        Node r = root;
+        int s = shift;
+        while (s < shiftFor(id)) {
+            // the old root becomes the first child of a new root
+            if (r != null) {
+                Object[] slots = new Object[WIDTH];
+                slots[0] = r;
+                r = new Node(slots, r.size);
+            }
+            s += BITS;
+        }
+        return new TaskSnapshot(with(r, s, id, task), s);
+    }
+
+    private static Node with(Node node, int shift, int id, Task task) {
+        Object[] slots = node == null ? new Object[WIDTH] : node.slots.clone();
+        int size = node == null ? 0 : node.size;
+        int i = (id >>> shift) & MASK;
+        if (shift == 0) {
+            if (slots[i] == null)
+                size++;
+            slots[i] = task;
+        } else {
+            Node child = (Node) slots[i];
+            Node newChild = with(child, shift - BITS, id, task);
+            size += newChild.size - (child == null ? 0 : child.size);
+            slots[i] = newChild;
+        }
+        return new Node(slots, size);
+    }
+
+    /**
+     * @param id the id of the task to remove
+     * @return a list without the task, or this list if it has no task with the id
+     */
+    TaskSnapshot without(int id) {
+        if (findById(id) == null)
+            return this;
+        return new TaskSnapshot(without(root, shift, id), shift);
+    }
+
+    private static Node without(Node node, int shift, int id) {
+        if (node.size == 1)
+            return null;
+        Object[] slots = node.slots.clone();
+        int i = (id >>> shift) & MASK;
+        slots[i] = shift == 0 ? null : without((Node) slots[i], shift - BITS, id);
+        return new Node(slots, node.size - 1);
+    }
+
+    /**
+     * @param id the id of the task
+     * @return the task with the id, or {@code null} if there is none
+     */
+    Task findById(int id) {
+        if (id < 0 || shiftFor(id) > shift)
+            return null;
+        Node node = root;
+        for (int s = shift; node != null && s > 0; s -= BITS) {
+            node = (Node) node.slots[(id >>> s) & MASK];
+        }
+        return node == null ? null : (Task) node.slots[id & MASK];
+    }
+
+    @Override
+    public Task get(int index) {
+        if (index < 0 || index >= size())
+            throw new IndexOutOfBoundsException(index);
+        Node node = root;
+        for (int s = shift; s > 0; s -= BITS) {
+            for (Object slot : node.slots) {
+                Node child = (Node) slot;
+                if (child == null)
+                    continue;
+                if (index < child.size) {
+                    node = child;
+                    break;
+                }
+                index -= child.size;
+            }
+        }
+        for (Object slot : node.slots) {
+            if (slot != null && index-- == 0)
+                return (Task) slot;
+        }
+        throw new IllegalStateException("Sizes of the nodes do not match their tasks");
+    }
+
+    @Override
+    public int size() {
+        return root == null ? 0 : root.size;
+    }
+
+    @Override
+    public Iterator<Task> iterator() {
+        return new Itr();
+    }
+
+    private static int shiftFor(int id) {
+        int shift = 0;
+        while (shift < BITS * (MAX_DEPTH - 1) && (id >>> (shift + BITS)) != 0) {
+            shift += BITS;
+        }
+        return shift;
+    }
+
+    // walks the trie depth first, keeping the path from the root to the current node
+    private final class Itr implements Iterator<Task> {
+        private final Node[] path = new Node[MAX_DEPTH];
+        private final int[] positions = new int[MAX_DEPTH];
+        private int depth;
+        private Task next;
+
+        Itr() {
+            path[0] = root;
+            depth = root == null ? -1 : 0;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (depth >= 0) {
+                Node node = path[depth];
+                if (positions[depth] == WIDTH) {
+                    depth--;
+                    continue;
+                }
+                Object slot = node.slots[positions[depth]++];
+                if (slot == null)
+                    continue;
+                if (shift - depth * BITS == 0) {
+                    next = (Task) slot;
+                    return;
+                }
+                depth++;
+                path[depth] = (Node) slot;
+                positions[depth] = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Task next() {
+            if (next == null)
+                throw new NoSuchElementException();
+            Task t = next;
+            advance();
+            return t;
+        }
+    }
+}
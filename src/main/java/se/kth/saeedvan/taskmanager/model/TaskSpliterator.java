@@ -0,0 +1,108 @@
+package se.kth.saeedvan.taskmanager.model;
+
+import java.util.BitSet;
+import java.util.Spliterator;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over the tasks whose ids are set in a {@link BitSet}, in ascending or descending order of id.
+ * <p>
+ * The tasks are looked up one at a time while iterating, nothing is copied up front. Tasks that are
+ * removed from the project before they are reached are skipped. The spliterator splits by id range,
+ * so a parallel stream can work on different parts of a large project. The ids and the tasks are read while
+ * holding the given lock, which is not held while a task is handed to the stream.
+ */
+class TaskSpliterator implements Spliterator<Task> {
+    private static final int MIN_SPLIT = 1024;
+
+    private final BitSet ids;
+    private final ITaskStore tasks;
+    private final Lock lock;
+    private final boolean descending;
+    // remaining ids are in [from, to)
+    private int from;
+    private int to;
+
+    TaskSpliterator(BitSet ids, ITaskStore tasks, Lock lock, boolean descending) {
+        this(ids, tasks, lock, descending, 0, ids.length());
+    }
+
+    private TaskSpliterator(BitSet ids, ITaskStore tasks, Lock lock, boolean descending, int from, int to) {
+        this.ids = ids;
+        this.tasks = tasks;
+        this.lock = lock;
+        this.descending = descending;
+        this.from = from;
+        this.to = to;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Task> action) {
+        Task t = next();
+        if (t == null)
+            return false;
+        action.accept(t);
+        return true;
+    }
+
+    private Task next() {
+        lock.lock();
+        try {
+            return nextLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Task nextLocked() {
+        while (from < to) {
+            int id;
+            if (descending) {
+                id = ids.previousSetBit(to - 1);
+                if (id < from) {
+                    to = from;
+                    return null;
+                }
+                to = id;
+            } else {
+                id = ids.nextSetBit(from);
+                if (id < 0 || id >= to) {
+                    from = to;
+                    return null;
+                }
+                from = id + 1;
+            }
+            Task t = tasks.get(id);
+            if (t != null)
+                return t;
+        }
+        return null;
+    }
+
+    @Override
+    public Spliterator<Task> trySplit() {
+        if (to - from < MIN_SPLIT)
+            return null;
+        int mid = (from + to) >>> 1;
+        // the returned part must come first in the encounter order
+        if (descending) {
+            TaskSpliterator prefix = new TaskSpliterator(ids, tasks, lock, true, mid, to);
+            this.to = mid;
+            return prefix;
+        }
+        TaskSpliterator prefix = new TaskSpliterator(ids, tasks, lock, false, from, mid);
+        this.from = mid;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return to - from;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | DISTINCT | NONNULL;
+    }
+}
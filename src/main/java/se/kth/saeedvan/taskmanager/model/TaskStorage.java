@@ -0,0 +1,18 @@
+package se.kth.saeedvan.taskmanager.model;
+
+/**
+ * How a {@link Project} keeps its tasks in memory.
+ */
+public enum TaskStorage {
+    /**
+     * Each task is a {@link Task} object of its own, which is handed out as it is.
+     */
+    OBJECTS,
+    /**
+     * The values of the tasks are kept in arrays, one per field, and the tasks handed out are views that read
+     * and change the arrays. A task then takes a fraction of the memory of a task object, so this suits
+     * projects with very many tasks. The arrays are indexed by the id of the task, so ids should be dense,
+     * as the ids given by {@link Project#addTask} are.
+     */
+    COLUMNS
+}
@@ -0,0 +1,24 @@
+package se.kth.saeedvan.taskmanager.model;
+
+import java.time.LocalDate;
+
+/**
+ * The number of tasks of a project, how many of them are done and the date of the latest update.
+ * It is stored with a project, so that a project restored without its tasks can answer
+ * {@link Project#getTaskCount()}, {@link Project#getState()} and {@link Project#getLastUptaded()}
+ * without loading them.
+ *
+ * @param taskCount the number of tasks
+ * @param doneCount the number of tasks that are {@link TaskState#DONE}
+ * @param lastUpdate the date of the latest update of a task, or {@code null} if no task has been updated
+ */
+public record TaskSummary(int taskCount, int doneCount, LocalDate lastUpdate) {
+
+    /**
+     * @throws IllegalArgumentException if a count is negative or more tasks are done than there are tasks
+     */
+    public TaskSummary {
+        if (taskCount < 0 || doneCount < 0 || doneCount > taskCount)
+            throw new IllegalArgumentException("Bad task counts " + taskCount + " and " + doneCount);
+    }
+}
@@ -0,0 +1,47 @@
+package se.kth.saeedvan.taskmanager.model;
+
+/**
+ * The steps of the workflow of a task, from {@link TaskState#TO_DO} through {@link TaskState#IN_PROGRESS}
+ * to {@link TaskState#DONE}. Each step is only allowed from certain states, see {@link Task#transition}.
+ */
+public enum TaskTransition {
+    /**
+     * Takes a task that nobody has taken, which leaves it to do.
+     */
+    TAKE(TaskState.TO_DO, "Task already taken"),
+    /**
+     * Starts working on a task that has been taken.
+     */
+    START(TaskState.IN_PROGRESS, "Task needs to be taken first"),
+    /**
+     * Finishes a task that is in progress.
+     */
+    FINISH(TaskState.DONE, "Task needs to be in progress first");
+
+    private final TaskState target;
+    private final String refusal;
+
+    private TaskTransition(TaskState target, String refusal) {
+        this.target = target;
+        this.refusal = refusal;
+    }
+
+    /**
+     * @return the state of a task after this step
+     */
+    public TaskState getTarget() {
+        return target;
+    }
+
+    boolean isAllowed(TaskState state, String takenBy) {
+        return switch (this) {
+            case TAKE -> takenBy == null;
+            case START -> takenBy != null;
+            case FINISH -> state == TaskState.IN_PROGRESS;
+        };
+    }
+
+    String getRefusal() {
+        return refusal;
+    }
+}
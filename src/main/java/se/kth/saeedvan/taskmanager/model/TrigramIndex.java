@@ -0,0 +1,81 @@
+package se.kth.saeedvan.taskmanager.model;
+
+import java.util.*;
+
+/**
+ * Index for substring search, ignoring case, over strings identified by an int id, used for project titles.
+ * <p>
+ * Every case folded string is split into its trigrams, the substrings of length three, and for each
+ * trigram the ids of the strings containing it are kept in an {@link IdPostings}. A string can only contain
+ * the searched string if it contains all of its trigrams, so intersecting those sets, smallest first,
+ * gives a small set of candidates that are then checked. Searches shorter than three characters check all strings.
+ */
+class TrigramIndex {
+    private static final int N = 3;
+
+    private final Map<String, IdPostings> postings;
+    // case folded strings by id
+    private final Map<Integer, String> keys;
+    private final BitSet all;
+
+    TrigramIndex() {
+        this.postings = new HashMap<>();
+        this.keys = new HashMap<>();
+        this.all = new BitSet();
+    }
+
+    void add(int id, String str) {
+        String key = CaseFolding.fold(str);
+        keys.put(id, key);
+        all.set(id);
+        for (int i = 0; i + N <= key.length(); i++) {
+            postings.computeIfAbsent(key.substring(i, i + N), t -> new IdPostings()).add(id);
+        }
+    }
+
+    void remove(int id) {
+        String key = keys.remove(id);
+        if (key == null)
+            return;
+        all.clear(id);
+        for (int i = 0; i + N <= key.length(); i++) {
+            String trigram = key.substring(i, i + N);
+            IdPostings ids = postings.get(trigram);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty())
+                    postings.remove(trigram);
+            }
+        }
+    }
+
+    /**
+     * Finds the ids of the strings that contain the given string, ignoring case.
+     *
+     * @param str the string to search for
+     * @return the ids of the matching strings
+     */
+    BitSet find(String str) {
+        String key = CaseFolding.fold(str);
+        List<IdPostings> trigramIds = new ArrayList<>();
+        for (int i = 0; i + N <= key.length(); i++) {
+            IdPostings ids = postings.get(key.substring(i, i + N));
+            if (ids == null)
+                return new BitSet();
+            trigramIds.add(ids);
+        }
+        trigramIds.sort(Comparator.comparingInt(IdPostings::size));
+
+        BitSet candidates = trigramIds.isEmpty() ? (BitSet) all.clone() : trigramIds.get(0).toBitSet();
+        for (int i = 1; i < trigramIds.size() && !candidates.isEmpty(); i++) {
+            candidates.and(trigramIds.get(i).toBitSet());
+        }
+
+        // all trigrams present does not mean they are in the right order, check every candidate
+        for (int id = candidates.nextSetBit(0); id >= 0; id = candidates.nextSetBit(id + 1)) {
+            if (!keys.get(id).contains(key))
+                candidates.clear(id);
+        }
+        return candidates;
+    }
+}
@@ -0,0 +1,43 @@
+package se.kth.saeedvan.taskmanager.model.exceptions;
+
+import se.kth.saeedvan.taskmanager.model.TaskState;
+
+/**
+ * Thrown when a task can not be changed because it is not in the expected state, for example because
+ * another user changed it first. Holds the state of the task when the change was refused.
+ */
+public class TaskConflictException extends IllegalStateException {
+    private static final long serialVersionUID = 5814661661998769290L;
+
+    private final TaskState state;
+    private final String takenBy;
+    private final int version;
+
+    public TaskConflictException(String msg, TaskState state, String takenBy, int version) {
+        super(msg);
+        this.state = state;
+        this.takenBy = takenBy;
+        this.version = version;
+    }
+
+    /**
+     * @return the state of the task when the change was refused
+     */
+    public TaskState getState() {
+        return state;
+    }
+
+    /**
+     * @return who had taken the task when the change was refused, or {@code null} if nobody had
+     */
+    public String getTakenBy() {
+        return takenBy;
+    }
+
+    /**
+     * @return the version of the task when the change was refused
+     */
+    public int getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,112 @@
+package se.kth.saeedvan.taskmanager.model.matcher;
+
+import se.kth.saeedvan.taskmanager.model.Task;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Matches tasks whose description contains all words of a query, ignoring case.
+ * <p>
+ * Words are runs of letters and digits. A query word ending with {@code *} is a prefix and matches
+ * any word that starts with it, so {@code "fix data*"} matches the description "Fix the database".
+ * A query without words matches all tasks.
+ */
+public final class DescriptionMatcher implements ITaskMatcher {
+    private final String query;
+    private final List<String> terms;
+    private final List<String> prefixes;
+
+    public DescriptionMatcher(String query) {
+        this.query = query;
+        this.terms = new ArrayList<>();
+        this.prefixes = new ArrayList<>();
+        for (String word : query.trim().split("\\s+")) {
+            List<String> tokens = tokenize(word);
+            if (tokens.isEmpty())
+                continue;
+            if (word.endsWith("*")) {
+                terms.addAll(tokens.subList(0, tokens.size() - 1));
+                prefixes.add(tokens.get(tokens.size() - 1));
+            } else {
+                terms.addAll(tokens);
+            }
+        }
+    }
+
+    public boolean match(Task task) {
+        Set<String> words = new HashSet<>(tokenize(task.getDescription()));
+        if (!words.containsAll(terms))
+            return false;
+        for (String prefix : prefixes) {
+            if (words.stream().noneMatch(w -> w.startsWith(prefix)))
+                return false;
+        }
+        return true;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * @return the words of the query that must be in the description
+     */
+    public List<String> getTerms() {
+        return List.copyOf(terms);
+    }
+
+    /**
+     * @return the prefixes of the query that some word in the description must start with
+     */
+    public List<String> getPrefixes() {
+        return List.copyOf(prefixes);
+    }
+
+    /**
+     * Splits the given text into words, runs of letters and digits, folded to the same case.
+     * Descriptions are indexed with this method, so queries and index agree on what a word is.
+     *
+     * @param text the text to split, may be {@code null}
+     * @return the words of the text, in order
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null)
+            return tokens;
+        int start = -1; // start of the current word, or -1 between words
+        boolean folded = true; // the current word is ASCII in lower case, so it is folded already
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            if (Character.isLetterOrDigit(cp)) {
+                if (start < 0) {
+                    start = i;
+                    folded = true;
+                }
+                if (cp >= 0x80 || (cp >= 'A' && cp <= 'Z'))
+                    folded = false;
+            } else if (start >= 0) {
+                tokens.add(word(text, start, i, folded));
+                start = -1;
+            }
+            i += Character.charCount(cp);
+        }
+        if (start >= 0)
+            tokens.add(word(text, start, text.length(), folded));
+        return tokens;
+    }
+
+    private static String word(String text, int start, int end, boolean folded) {
+        if (folded)
+            return text.substring(start, end);
+        StringBuilder word = new StringBuilder(end - start);
+        for (int i = start; i < end; ) {
+            int cp = text.codePointAt(i);
+            word.appendCodePoint(Character.toLowerCase(Character.toUpperCase(cp)));
+            i += Character.charCount(cp);
+        }
+        return word.toString();
+    }
+}
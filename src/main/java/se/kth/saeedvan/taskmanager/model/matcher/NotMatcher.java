@@ -0,0 +1,22 @@
+package se.kth.saeedvan.taskmanager.model.matcher;
+
+import se.kth.saeedvan.taskmanager.model.Task;
+
+/**
+ * Matches a task if the given matcher does not match it.
+ */
+public final class NotMatcher implements ITaskMatcher {
+    private final ITaskMatcher matcher;
+
+    public NotMatcher(ITaskMatcher matcher) {
+        this.matcher = matcher;
+    }
+
+    public boolean match(Task task) {
+        return !matcher.match(task);
+    }
+
+    public ITaskMatcher getMatcher() {
+        return matcher;
+    }
+}
@@ -0,0 +1,33 @@
+package se.kth.saeedvan.taskmanager.model.matcher;
+
+import se.kth.saeedvan.taskmanager.model.Task;
+
+import java.util.List;
+
+/**
+ * Matches a task if any of the given matchers match it.
+ * The matchers are tested in the given order and testing stops at the first matcher that matches.
+ */
+public final class OrMatcher implements ITaskMatcher {
+    private final List<ITaskMatcher> matchers;
+
+    public OrMatcher(ITaskMatcher... matchers) {
+        this(List.of(matchers));
+    }
+
+    public OrMatcher(List<ITaskMatcher> matchers) {
+        this.matchers = List.copyOf(matchers);
+    }
+
+    public boolean match(Task task) {
+        for (ITaskMatcher m : matchers) {
+            if (m.match(task))
+                return true;
+        }
+        return false;
+    }
+
+    public List<ITaskMatcher> getMatchers() {
+        return matchers;
+    }
+}
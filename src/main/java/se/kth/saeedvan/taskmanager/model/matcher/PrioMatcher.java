@@ -3,7 +3,7 @@ package se.kth.saeedvan.taskmanager.model.matcher;
 import se.kth.saeedvan.taskmanager.model.Task;
 import se.kth.saeedvan.taskmanager.model.TaskPrio;
 
-public class PrioMatcher implements ITaskMatcher {
+public final class PrioMatcher implements ITaskMatcher {
     private TaskPrio prio;
 
     public PrioMatcher(TaskPrio prio) {
@@ -12,4 +12,8 @@ public class PrioMatcher implements ITaskMatcher {
     public boolean match(Task task) {
         return this.prio == task.getPrio();
     }
+
+    public TaskPrio getPrio() {
+        return prio;
+    }
 }
@@ -0,0 +1,260 @@
+package se.kth.saeedvan.taskmanager.server;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes and reads the JSON of the requests and responses of {@link TaskServer}, for the server and its clients.
+ * <p>
+ * Values are written from maps, lists, strings, numbers, booleans, enums (by name), dates and {@code null}.
+ * Objects are read into maps that keep the order of the members, integral numbers into {@code Long}
+ * and other numbers into {@code Double}.
+ */
+public final class Json {
+    private final String text;
+    private int pos;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    /**
+     * @param value the value to write
+     * @return the value as JSON
+     * @throws IllegalArgumentException if the value, or a value in it, can not be written as JSON
+     */
+    public static String write(Object value) {
+        StringBuilder builder = new StringBuilder();
+        write(builder, value);
+        return builder.toString();
+    }
+
+    private static void write(StringBuilder builder, Object value) {
+        if (value == null || value instanceof Boolean || value instanceof Integer || value instanceof Long) {
+            builder.append(value);
+        } else if (value instanceof Number n) {
+            double d = n.doubleValue();
+            builder.append(Double.isFinite(d) ? String.valueOf(d) : "null");
+        } else if (value instanceof String || value instanceof Enum<?> || value instanceof LocalDate) {
+            quote(builder, value instanceof Enum<?> e ? e.name() : value.toString());
+        } else if (value instanceof Map<?, ?> map) {
+            builder.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> e : map.entrySet()) {
+                if (!first)
+                    builder.append(',');
+                first = false;
+                quote(builder, e.getKey().toString());
+                builder.append(':');
+                write(builder, e.getValue());
+            }
+            builder.append('}');
+        } else if (value instanceof Iterable<?> list) {
+            builder.append('[');
+            boolean first = true;
+            for (Object o : list) {
+                if (!first)
+                    builder.append(',');
+                first = false;
+                write(builder, o);
+            }
+            builder.append(']');
+        } else {
+            throw new IllegalArgumentException("Can not write " + value.getClass().getName() + " as JSON");
+        }
+    }
+
+    private static void quote(StringBuilder builder, String str) {
+        builder.append('"');
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            switch (c) {
+                case '"' -> builder.append("\\\"");
+                case '\\' -> builder.append("\\\\");
+                case '\n' -> builder.append("\\n");
+                case '\r' -> builder.append("\\r");
+                case '\t' -> builder.append("\\t");
+                default -> {
+                    if (c < 0x20)
+                        builder.append(String.format("\\u%04x", (int) c));
+                    else
+                        builder.append(c);
+                }
+            }
+        }
+        builder.append('"');
+    }
+
+    /**
+     * @param text JSON text holding one object
+     * @return the members of the object, in the order they are written
+     * @throws IllegalArgumentException if the text is not a JSON object
+     */
+    public static Map<String, Object> readObject(String text) {
+        Json json = new Json(text);
+        json.skipSpace();
+        if (json.peek() != '{')
+            throw json.error("Expected an object");
+        Object value = json.readValue();
+        json.skipSpace();
+        if (json.pos != text.length())
+            throw json.error("Unexpected text after the object");
+        @SuppressWarnings("unchecked")
+        Map<String, Object> object = (Map<String, Object>) value;
+        return object;
+    }
+
+    private Object readValue() {
+        skipSpace();
+        char c = peek();
+        switch (c) {
+            case '{':
+                return readMembers();
+            case '[':
+                return readElements();
+            case '"':
+                return readString();
+            case 't':
+                expect("true");
+                return Boolean.TRUE;
+            case 'f':
+                expect("false");
+                return Boolean.FALSE;
+            case 'n':
+                expect("null");
+                return null;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9'))
+                    return readNumber();
+                throw error("Unexpected character '" + c + "'");
+        }
+    }
+
+    private Map<String, Object> readMembers() {
+        Map<String, Object> members = new LinkedHashMap<>();
+        pos++;
+        skipSpace();
+        if (peek() == '}') {
+            pos++;
+            return members;
+        }
+        while (true) {
+            skipSpace();
+            if (peek() != '"')
+                throw error("Expected the name of a member");
+            String name = readString();
+            skipSpace();
+            if (peek() != ':')
+                throw error("Expected ':'");
+            pos++;
+            members.put(name, readValue());
+            skipSpace();
+            char c = peek();
+            pos++;
+            if (c == '}')
+                return members;
+            if (c != ',')
+                throw error("Expected ',' or '}'");
+        }
+    }
+
+    private List<Object> readElements() {
+        List<Object> elements = new ArrayList<>();
+        pos++;
+        skipSpace();
+        if (peek() == ']') {
+            pos++;
+            return elements;
+        }
+        while (true) {
+            elements.add(readValue());
+            skipSpace();
+            char c = peek();
+            pos++;
+            if (c == ']')
+                return elements;
+            if (c != ',')
+                throw error("Expected ',' or ']'");
+        }
+    }
+
+    private String readString() {
+        StringBuilder builder = new StringBuilder();
+        pos++;
+        while (true) {
+            char c = peek();
+            pos++;
+            if (c == '"')
+                return builder.toString();
+            if (c != '\\') {
+                builder.append(c);
+                continue;
+            }
+            char escaped = peek();
+            pos++;
+            switch (escaped) {
+                case '"', '\\', '/' -> builder.append(escaped);
+                case 'b' -> builder.append('\b');
+                case 'f' -> builder.append('\f');
+                case 'n' -> builder.append('\n');
+                case 'r' -> builder.append('\r');
+                case 't' -> builder.append('\t');
+                case 'u' -> {
+                    if (pos + 4 > text.length())
+                        throw error("Unexpected end of text");
+                    try {
+                        builder.append((char) Integer.parseInt(text, pos, pos + 4, 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Bad unicode escape");
+                    }
+                    pos += 4;
+                }
+                default -> throw error("Bad escape '\\" + escaped + "'");
+            }
+        }
+    }
+
+    private Number readNumber() {
+        int start = pos;
+        boolean integral = true;
+        while (pos < text.length()) {
+            char c = text.charAt(pos);
+            if (c == '.' || c == 'e' || c == 'E')
+                integral = false;
+            else if (c != '-' && c != '+' && (c < '0' || c > '9'))
+                break;
+            pos++;
+        }
+        String number = text.substring(start, pos);
+        try {
+            return integral ? (Number) Long.parseLong(number) : (Number) Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+            throw error("Bad number " + number);
+        }
+    }
+
+    private void expect(String word) {
+        if (!text.startsWith(word, pos))
+            throw error("Expected " + word);
+        pos += word.length();
+    }
+
+    private void skipSpace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private char peek() {
+        if (pos >= text.length())
+            throw error("Unexpected end of text");
+        return text.charAt(pos);
+    }
+
+    private IllegalArgumentException error(String msg) {
+        return new IllegalArgumentException(msg + " at position " + pos + " of the JSON");
+    }
+}
@@ -0,0 +1,378 @@
+package se.kth.saeedvan.taskmanager.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import se.kth.saeedvan.taskmanager.model.Project;
+import se.kth.saeedvan.taskmanager.model.ProjectsManager;
+import se.kth.saeedvan.taskmanager.model.Task;
+import se.kth.saeedvan.taskmanager.model.TaskPrio;
+import se.kth.saeedvan.taskmanager.model.TaskTransition;
+import se.kth.saeedvan.taskmanager.model.exceptions.TaskConflictException;
+import se.kth.saeedvan.taskmanager.model.exceptions.TitleNotUniqueException;
+import se.kth.saeedvan.taskmanager.model.matcher.AndMatcher;
+import se.kth.saeedvan.taskmanager.model.matcher.DescriptionMatcher;
+import se.kth.saeedvan.taskmanager.model.matcher.ITaskMatcher;
+import se.kth.saeedvan.taskmanager.model.matcher.NotDoneMatcher;
+import se.kth.saeedvan.taskmanager.model.matcher.PrioMatcher;
+import se.kth.saeedvan.taskmanager.model.matcher.TakenByMatcher;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * HTTP front end over a {@link ProjectsManager}, so that many users can share the projects of one application.
+ * Requests and responses are JSON, and each request is handled on its own virtual thread.
+ * <p>
+ * The resources are
+ * <ul>
+ *     <li>{@code GET /projects?title=...} lists the projects, or the ones whose title contains {@code title},
+ *     and {@code POST /projects} with {@code title} and optionally {@code description} adds a project</li>
+ *     <li>{@code GET /projects/{id}} shows a project and {@code DELETE /projects/{id}} removes it</li>
+ *     <li>{@code GET /projects/{id}/tasks} finds tasks of the project, see below, and {@code POST} with
+ *     {@code description} and {@code prio} adds a task</li>
+ *     <li>{@code GET /projects/{id}/tasks/{taskId}} shows a task, {@code PUT} with {@code prio} changes its
+ *     priority and {@code DELETE} removes it</li>
+ *     <li>{@code POST /projects/{id}/tasks/{taskId}/transitions} with {@code transition}, one of {@code TAKE},
+ *     {@code START} or {@code FINISH}, {@code takenBy} and optionally {@code version} makes a step of the
+ *     workflow, see {@link Task#transition}</li>
+ *     <li>{@code GET /tasks} finds tasks in all projects</li>
+ * </ul>
+ * Tasks are found with the query parameters {@code prio}, {@code takenBy}, {@code notDone=true} and {@code q},
+ * words of the description, which all must match. The newest tasks come first, at most {@code limit} of them
+ * from each project, and {@code before} gives the next page, the tasks of each project with a lower id,
+ * as in {@link Project#findTasks}.
+ * A step of the workflow that is not allowed answers {@code 409 Conflict} with the state of the task.
+ * <p>
+ * Run with {@code -Dsun.net.httpserver.nodelay=true}, or set it before the first server is created. The headers
+ * and the body of a response are sent separately, so without it each response waits some 40 ms for the delayed
+ * acknowledgement of the headers.
+ */
+public class TaskServer implements AutoCloseable {
+    /**
+     * Default for the number of connections waiting to be accepted.
+     */
+    public static final int DEFAULT_BACKLOG = 1024;
+
+    private static final int DEFAULT_LIMIT = 50;
+    private static final int MAX_BODY_SIZE = 1 << 16;
+    // seconds to let running requests finish when closing
+    private static final int STOP_DELAY = 1;
+
+    private final ProjectsManager manager;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a server, which does not accept requests until it is started.
+     *
+     * @param manager the projects to serve
+     * @param address the address to listen on, with port {@code 0} for any free port
+     * @param backlog the number of connections waiting to be accepted
+     * @throws IOException if the server could not listen on the address
+     */
+    public TaskServer(ProjectsManager manager, InetSocketAddress address, int backlog) throws IOException {
+        this.manager = manager;
+        this.server = HttpServer.create(address, backlog);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * @return the address the server listens on
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * Stops accepting requests, lets the running ones finish and stops the server.
+     */
+    @Override
+    public void close() {
+        server.stop(STOP_DELAY);
+        executor.close();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            int status = 200;
+            Object body;
+            try {
+                String[] path = exchange.getRequestURI().getPath().replaceAll("^/+|/+$", "").split("/+");
+                body = route(exchange, path);
+                if (body == null)
+                    status = 204;
+                else if (exchange.getRequestMethod().equals("POST") && !path[path.length - 1].equals("transitions"))
+                    status = 201;
+            } catch (HttpError e) {
+                status = e.status;
+                body = error(e.getMessage());
+            } catch (TaskConflictException e) {
+                status = 409;
+                Map<String, Object> conflict = error(e.getMessage());
+                conflict.put("state", e.getState());
+                conflict.put("takenBy", e.getTakenBy());
+                conflict.put("version", e.getVersion());
+                body = conflict;
+            } catch (TitleNotUniqueException e) {
+                status = 409;
+                body = error(e.getMessage());
+            } catch (IllegalArgumentException | ClassCastException e) {
+                // bad numbers, names or members in the request
+                status = 400;
+                body = error(e.getMessage());
+            } catch (RuntimeException e) {
+                status = 500;
+                body = error("Internal error: " + e);
+            }
+            send(exchange, status, body);
+        }
+    }
+
+    private Object route(HttpExchange exchange, String[] path) throws IOException {
+        String method = exchange.getRequestMethod();
+        Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+        if (path[0].equals("tasks") && path.length == 1) {
+            allow(method, "GET");
+            return findTasks(query);
+        }
+        if (!path[0].equals("projects"))
+            throw new HttpError(404, "No such resource");
+        if (path.length == 1) {
+            if (allow(method, "GET", "POST").equals("GET"))
+                return listProjects(query);
+            Map<String, Object> request = readBody(exchange);
+            String description = string(request, "description", false);
+            Project project = manager.addProject(string(request, "title", true), description == null ? "" : description);
+            return project(project, true);
+        }
+
+        Project project = manager.getProjectById(id(path[1]));
+        if (project == null)
+            throw new HttpError(404, "No such project");
+        if (path.length == 2) {
+            if (allow(method, "GET", "DELETE").equals("GET"))
+                return project(project, true);
+            manager.removeProject(project);
+            return null;
+        }
+        if (!path[2].equals("tasks") || path.length > 5 || (path.length == 5 && !path[4].equals("transitions")))
+            throw new HttpError(404, "No such resource");
+        if (path.length == 3) {
+            if (allow(method, "GET", "POST").equals("GET"))
+                return tasks(project.findTasks(matcher(query), limit(query), before(query)));
+            Map<String, Object> request = readBody(exchange);
+            return task(project.addTask(string(request, "description", true), prio(string(request, "prio", true))));
+        }
+
+        Task task = project.getTaskById(id(path[3]));
+        if (task == null)
+            throw new HttpError(404, "No such task");
+        if (path.length == 5) {
+            allow(method, "POST");
+            Map<String, Object> request = readBody(exchange);
+            TaskTransition transition = TaskTransition.valueOf(string(request, "transition", true).toUpperCase(Locale.ROOT));
+            Object version = request.get("version");
+            task.transition(transition, string(request, "takenBy", transition == TaskTransition.TAKE),
+                    version == null ? Task.ANY_VERSION : ((Number) version).intValue());
+            return task(task);
+        }
+        switch (allow(method, "GET", "PUT", "DELETE")) {
+            case "GET":
+                return task(task);
+            case "PUT":
+                task.setPrio(prio(string(readBody(exchange), "prio", true)));
+                return task(task);
+            default:
+                project.removeTask(task);
+                return null;
+        }
+    }
+
+    private List<Map<String, Object>> listProjects(Map<String, String> query) {
+        String title = query.get("title");
+        List<Project> projects = title == null ? manager.getProjects() : manager.findProjects(title);
+        List<Map<String, Object>> result = new ArrayList<>(projects.size());
+        for (Project p : projects) {
+            result.add(project(p, false));
+        }
+        return result;
+    }
+
+    // each project is asked for one page only, so the index stops at the limit instead of finding every match
+    private List<Map<String, Object>> findTasks(Map<String, String> query) {
+        ITaskMatcher matcher = matcher(query);
+        int limit = limit(query);
+        int before = before(query);
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Project project : manager.getProjects()) {
+            List<Task> tasks = project.findTasks(matcher, limit, before);
+            if (tasks.isEmpty())
+                continue;
+            Map<String, Object> found = project(project, false);
+            found.put("tasks", tasks(tasks));
+            result.add(found);
+        }
+        return result;
+    }
+
+    private static ITaskMatcher matcher(Map<String, String> query) {
+        List<ITaskMatcher> matchers = new ArrayList<>();
+        if (query.containsKey("prio"))
+            matchers.add(new PrioMatcher(prio(query.get("prio"))));
+        if (query.containsKey("takenBy"))
+            matchers.add(new TakenByMatcher(query.get("takenBy")));
+        if (Boolean.parseBoolean(query.get("notDone")))
+            matchers.add(new NotDoneMatcher());
+        if (query.containsKey("q"))
+            matchers.add(new DescriptionMatcher(query.get("q")));
+        if (matchers.isEmpty())
+            return task -> true;
+        return matchers.size() == 1 ? matchers.get(0) : new AndMatcher(matchers);
+    }
+
+    private static int limit(Map<String, String> query) {
+        int limit = query.containsKey("limit") ? Integer.parseInt(query.get("limit")) : DEFAULT_LIMIT;
+        if (limit < 0)
+            throw new IllegalArgumentException("limit is negative");
+        return limit;
+    }
+
+    private static int before(Map<String, String> query) {
+        return query.containsKey("before") ? Integer.parseInt(query.get("before")) : Integer.MAX_VALUE;
+    }
+
+    private static Map<String, Object> project(Project project, boolean details) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", project.getId());
+        json.put("title", project.getTitle());
+        json.put("description", project.getDescription());
+        json.put("created", project.getCreated());
+        // these load the tasks of the project
+        if (details) {
+            json.put("state", project.getState());
+            json.put("taskCount", project.getTaskCount());
+            json.put("lastUpdated", project.getLastUptaded());
+        }
+        return json;
+    }
+
+    private static List<Map<String, Object>> tasks(List<Task> tasks) {
+        List<Map<String, Object>> json = new ArrayList<>(tasks.size());
+        for (Task t : tasks) {
+            json.add(task(t));
+        }
+        return json;
+    }
+
+    private static Map<String, Object> task(Task task) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", task.getId());
+        json.put("description", task.getDescription());
+        json.put("prio", task.getPrio());
+        json.put("state", task.getState());
+        json.put("takenBy", task.getTakenBy());
+        json.put("lastUpdate", task.getLastUpdate());
+        json.put("version", task.getVersion());
+        return json;
+    }
+
+    private static Map<String, Object> error(String msg) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("error", msg);
+        return json;
+    }
+
+    private static TaskPrio prio(String prio) {
+        return TaskPrio.valueOf(prio.toUpperCase(Locale.ROOT));
+    }
+
+    private static int id(String str) {
+        try {
+            return Integer.parseInt(str);
+        } catch (NumberFormatException e) {
+            throw new HttpError(404, "Not an id: " + str);
+        }
+    }
+
+    private static String string(Map<String, Object> request, String name, boolean required) {
+        Object value = request.get(name);
+        if (value == null && required)
+            throw new IllegalArgumentException("Missing " + name);
+        return (String) value;
+    }
+
+    private static String allow(String method, String... allowed) {
+        for (String a : allowed) {
+            if (a.equals(method))
+                return a;
+        }
+        throw new HttpError(405, "Method not allowed, use " + String.join(" or ", allowed));
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null)
+            return query;
+        for (String param : rawQuery.split("&")) {
+            int eq = param.indexOf('=');
+            if (eq < 0)
+                query.put(URLDecoder.decode(param, StandardCharsets.UTF_8), "");
+            else
+                query.put(URLDecoder.decode(param.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(param.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_SIZE + 1);
+            if (body.length > MAX_BODY_SIZE)
+                throw new HttpError(413, "Request body is larger than " + MAX_BODY_SIZE + " bytes");
+            return Json.readObject(new String(body, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, Object body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = Json.write(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // answers the request with the status instead of the resource
+    private static class HttpError extends RuntimeException {
+        private static final long serialVersionUID = -5820102141973820421L;
+
+        private final int status;
+
+        HttpError(int status, String msg) {
+            super(msg);
+            this.status = status;
+        }
+    }
+}
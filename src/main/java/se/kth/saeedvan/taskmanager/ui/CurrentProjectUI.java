@@ -3,11 +3,14 @@ package se.kth.saeedvan.taskmanager.ui;
 
 
 import se.kth.saeedvan.taskmanager.model.*;
+import se.kth.saeedvan.taskmanager.model.exceptions.TaskConflictException;
+import se.kth.saeedvan.taskmanager.model.matcher.DescriptionMatcher;
 import se.kth.saeedvan.taskmanager.model.matcher.ITaskMatcher;
 import se.kth.saeedvan.taskmanager.model.matcher.NotDoneMatcher;
 import se.kth.saeedvan.taskmanager.model.matcher.PrioMatcher;
 import se.kth.saeedvan.taskmanager.model.matcher.TakenByMatcher;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Scanner;
 
@@ -16,6 +19,8 @@ import java.util.Scanner;
  * The user selects actions on current project in the projectLoop method.
  */
 class CurrentProjectUI {
+    private static final int PAGE_SIZE = 10;
+
     private Project currentProject;
     private final Scanner scan;
 
@@ -43,13 +48,18 @@ class CurrentProjectUI {
 
             switch (choice) {
                 case 'V':
-                    printTasks(currentProject.getTasks());
+                    printTasks(currentProject.streamTasks().iterator());
                     break;
                 case 'T':
                     System.out.print("Name? ");
                     String takenBy = scan.nextLine();
                     viewTasks(new TakenByMatcher(takenBy));
                     break;
+                case 'S':
+                    System.out.print("Words (end a word with * to search for the beginning of a word)? ");
+                    String words = scan.nextLine();
+                    viewTasks(new DescriptionMatcher(words));
+                    break;
                 case 'N':
                     viewTasks(new NotDoneMatcher());
                     break;
@@ -79,8 +89,19 @@ class CurrentProjectUI {
 
     private void viewTasks(ITaskMatcher matcher) {
         //System.out.println(currentProject.toString());
-        List<Task> tasks = currentProject.findTasks(matcher);
+        List<Task> tasks = currentProject.findTasks(matcher, PAGE_SIZE);
         printTasks(tasks);
+        while (tasks.size() == PAGE_SIZE) {
+            System.out.print("M - more tasks, any other key - back? ");
+            if (InputUtils.scanAndReturnFirstChar(scan) != 'M')
+                break;
+            int lastId = tasks.get(tasks.size() - 1).getId();
+            tasks = currentProject.findTasks(matcher, PAGE_SIZE, lastId);
+            if (tasks.isEmpty())
+                System.out.println("No more tasks");
+            else
+                printTasks(tasks);
+        }
     }
 
     private void addTask() {
@@ -112,36 +133,27 @@ class CurrentProjectUI {
         scan.nextLine(); //remove "new line" from scanner buffer
         Task task = currentProject.getTaskById(id);
         if (task != null) {
+            // the change is refused if someone else changes the task while it is shown
+            int version = task.getVersion();
             System.out.println(task);
             System.out.print("New state (T)odo (P)In progress (D)one? ");
             char stateChar = InputUtils.scanAndReturnFirstChar(scan);
-            if (stateChar == 'T') {
-                System.out.print("Taken by (name or email address)? ");
-                String emailStr = scan.nextLine();
-                task.setState(TaskState.TO_DO);
-                try {
-                    task.setTakenBy(emailStr);
-                }
-                catch(IllegalStateException e) {
-                    System.out.println("Task already taken !!!");
-                }
-            }
-            else if (stateChar == ('P')) {
-                if (task.getTakenBy() == null) {
-                    System.out.println("Task needs to taken first");
+            try {
+                if (stateChar == 'T') {
+                    System.out.print("Taken by (name or email address)? ");
+                    String emailStr = scan.nextLine();
+                    task.transition(TaskTransition.TAKE, emailStr, version);
                 }
+                else if (stateChar == ('P'))
+                    task.transition(TaskTransition.START, null, version);
+                else if(stateChar == ('D'))
+                    task.transition(TaskTransition.FINISH, null, version);
                 else
-                    task.setState(TaskState.IN_PROGRESS);
-            }
-            else if(stateChar == ('D')) {
-                if (task.getState() != TaskState.IN_PROGRESS) {
-                    System.out.println("Task needs to be in progress first");
-                }
-                else
-                    task.setState(TaskState.DONE);
+                    System.out.println("Unknown command");
             }
-            else {
-                System.out.println("Unknown command");
+            catch (TaskConflictException e) {
+                System.out.println(e.getMessage() + ", the task is " + e.getState()
+                        + (e.getTakenBy() == null ? "" : " and taken by " + e.getTakenBy()));
             }
         } else {
             System.out.println("Id not found.");
@@ -152,6 +164,7 @@ class CurrentProjectUI {
         System.out.println("--- Manage " + currentProject.getTitle() + " ---");
         System.out.println("V - list all tasks");
         System.out.println("T - list tasks taken by ...");
+        System.out.println("S - search tasks by description");
         System.out.println("N - list tasks not done");
         System.out.println("H - list high priority tasks");
         System.out.println("L - list low priority tasks");
@@ -163,11 +176,15 @@ class CurrentProjectUI {
     }
 
     private void printTasks(List<Task> tasks) {
-        if (tasks.isEmpty()) {
+        printTasks(tasks.iterator());
+    }
+
+    private void printTasks(Iterator<Task> tasks) {
+        if (!tasks.hasNext()) {
             System.out.println("No tasks added");
         } else {
-            for (Task task : tasks) {
-                System.out.println(task.toString());
+            while (tasks.hasNext()) {
+                System.out.println(tasks.next().toString());
             }
         }
     }
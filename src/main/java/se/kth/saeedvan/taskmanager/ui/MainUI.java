@@ -1,5 +1,6 @@
 package se.kth.saeedvan.taskmanager.ui;
 
+import se.kth.saeedvan.taskmanager.metrics.Metrics;
 import se.kth.saeedvan.taskmanager.model.*;
 
 import java.util.List;
@@ -42,6 +43,9 @@ public class MainUI {
                 case 'M':
                     manageProject();
                     break;
+                case 'S':
+                    showMetrics();
+                    break;
                 case 'R':
                     removeProject();
                 case 'X':
@@ -86,6 +90,8 @@ public class MainUI {
         scan.nextLine(); //remove "new line" from scanner buffer
         Project currentProject = manager.getProjectById(id);
         if (currentProject != null) { // TODO: This is ugly!
+            // the tasks of a project mapped from file are decoded here, when the project is first managed
+            currentProject.load();
             System.out.println(currentProject);
             currentProjectUI.setCurrentProject(currentProject);
         } else {
@@ -108,6 +114,12 @@ public class MainUI {
         }
     }
 
+    private void showMetrics() {
+        if (!Metrics.isEnabled())
+            System.out.println("Metrics are off, run with -Dtaskmanager.metrics=true or turn them on from JMX.");
+        Metrics.print(System.out);
+    }
+
     private void printMainMenu() {
         System.out.println("---Main menu---");
         System.out.println("V - view all projects");
@@ -115,6 +127,7 @@ public class MainUI {
         System.out.println("A - add project");
         System.out.println("M - manage project");
         System.out.println("R - remove project");
+        System.out.println("S - show operation metrics");
         System.out.println("X - exit");
         System.out.println("----------");
     }
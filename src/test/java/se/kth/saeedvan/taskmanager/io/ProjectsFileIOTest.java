@@ -0,0 +1,163 @@
+package se.kth.saeedvan.taskmanager.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import se.kth.saeedvan.taskmanager.model.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static se.kth.saeedvan.taskmanager.io.StoredFields.stored;
+
+class ProjectsFileIOTest {
+    // magic, version, number of chunks and where they end
+    private static final int HEADER_SIZE = 18;
+    // marker, length and checksum
+    private static final int CHUNK_HEADER_SIZE = 12;
+
+    @TempDir
+    Path dir;
+
+    private File file() {
+        return dir.resolve("projects.dat").toFile();
+    }
+
+    private static List<Project> projects(int count) {
+        List<Project> projects = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Project project = Project.restore("Project " + i, "description of " + i, i + 1,
+                    LocalDate.of(2024, 1, 1).plusDays(i), 0);
+            for (int j = 0; j < 10; j++) {
+                TaskState state = TaskState.values()[(i + j) % TaskState.values().length];
+                String takenBy = state == TaskState.TO_DO ? null : "user " + j % 3;
+                LocalDate lastUpdate = j % 4 == 0 ? null : LocalDate.of(2024, 2, 1).plusDays(j);
+                project.restoreTask(j, "task " + j + " of " + i, TaskPrio.values()[j % TaskPrio.values().length],
+                        state, takenBy, lastUpdate);
+            }
+            projects.add(project);
+        }
+        // a project without tasks, and one with the fields that may be missing
+        projects.add(Project.restore("Empty", "no tasks", count + 1, LocalDate.of(2024, 3, 1), 5));
+        Project sparse = Project.restore("Sparse", "", count + 2, LocalDate.of(2024, 3, 2), 0);
+        sparse.restoreTask(3, "", null, null, null, null);
+        projects.add(sparse);
+        return projects;
+    }
+
+    // the positions of the chunks in a file that has not been appended to
+    private static List<Integer> chunkStarts(byte[] bytes) {
+        List<Integer> starts = new ArrayList<>();
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        for (int position = HEADER_SIZE; position < bytes.length; position += CHUNK_HEADER_SIZE + in.getInt(position + 4)) {
+            starts.add(position);
+        }
+        return starts;
+    }
+
+    @Test
+    void savedProjectsAreLoadedAndMapped() throws Exception {
+        List<Project> projects = projects(20);
+        ProjectsFileIO.saveToFile(file(), projects);
+
+        assertEquals(stored(projects), stored(ProjectsFileIO.loadFromFile(file())));
+
+        List<Project> mapped = ProjectsFileIO.mapFromFile(file());
+        for (int i = 0; i < projects.size(); i++) {
+            Project p = mapped.get(i);
+            assertFalse(p.isLoaded());
+            // answered from the summary in the file
+            assertEquals(projects.get(i).getTaskCount(), p.getTaskCount());
+            assertEquals(projects.get(i).getState(), p.getState());
+            assertEquals(projects.get(i).getLastUptaded(), p.getLastUptaded());
+        }
+        assertEquals(stored(projects), stored(mapped));
+    }
+
+    @Test
+    void emptyListIsSavedAndLoaded() throws Exception {
+        ProjectsFileIO.saveToFile(file(), List.of());
+        assertTrue(ProjectsFileIO.loadFromFile(file()).isEmpty());
+    }
+
+    @Test
+    void damagedRecordLosesOnlyItsProject() throws Exception {
+        List<Project> projects = projects(5);
+        ProjectsFileIO.saveToFile(file(), projects);
+        byte[] bytes = Files.readAllBytes(file().toPath());
+        int damaged = chunkStarts(bytes).get(2);
+        bytes[damaged + CHUNK_HEADER_SIZE + 10] ^= 0x55;
+        Files.write(file().toPath(), bytes);
+
+        CorruptProjectsException e = assertThrows(CorruptProjectsException.class,
+                () -> ProjectsFileIO.loadFromFile(file()));
+        assertEquals(1, e.getSkipped());
+        List<Project> expected = new ArrayList<>(projects);
+        expected.remove(2);
+        assertEquals(stored(expected), stored(e.getProjects()));
+
+        e = assertThrows(CorruptProjectsException.class, () -> ProjectsFileIO.mapFromFile(file()));
+        assertEquals(1, e.getSkipped());
+        assertEquals(stored(expected), stored(e.getProjects()));
+    }
+
+    @Test
+    void damagedLengthIsSkippedToTheNextChunk() throws Exception {
+        List<Project> projects = projects(5);
+        ProjectsFileIO.saveToFile(file(), projects);
+        byte[] bytes = Files.readAllBytes(file().toPath());
+        List<Integer> starts = chunkStarts(bytes);
+
+        // a length that reaches into the next chunk
+        ByteBuffer.wrap(bytes).putInt(starts.get(1) + 4, bytes.length / 2);
+        // and a length beyond the end of the file
+        ByteBuffer.wrap(bytes).putInt(starts.get(3) + 4, Integer.MAX_VALUE);
+        Files.write(file().toPath(), bytes);
+
+        CorruptProjectsException e = assertThrows(CorruptProjectsException.class,
+                () -> ProjectsFileIO.loadFromFile(file()));
+        assertEquals(2, e.getSkipped());
+        List<Project> expected = new ArrayList<>(projects);
+        expected.remove(3);
+        expected.remove(1);
+        assertEquals(stored(expected), stored(e.getProjects()));
+    }
+
+    @Test
+    void missingEndLosesTheLastProject() throws Exception {
+        List<Project> projects = projects(3);
+        ProjectsFileIO.saveToFile(file(), projects);
+        byte[] bytes = Files.readAllBytes(file().toPath());
+        int last = chunkStarts(bytes).getLast();
+        byte[] cut = new byte[last + 20];
+        System.arraycopy(bytes, 0, cut, 0, cut.length);
+        // the header still holds the end of the complete file
+        Files.write(file().toPath(), cut);
+
+        CorruptProjectsException e = assertThrows(CorruptProjectsException.class,
+                () -> ProjectsFileIO.loadFromFile(file()));
+        assertEquals(1, e.getSkipped());
+        assertEquals(stored(projects.subList(0, projects.size() - 1)), stored(e.getProjects()));
+    }
+
+    @Test
+    void otherFilesAreRejected() throws IOException {
+        Files.write(file().toPath(), "not a projects file".getBytes());
+        assertThrows(IOException.class, () -> ProjectsFileIO.loadFromFile(file()));
+        Files.write(file().toPath(), new byte[0]);
+        assertThrows(IOException.class, () -> ProjectsFileIO.mapFromFile(file()));
+    }
+
+    @Test
+    void serializedFileIsRead() throws Exception {
+        List<Project> projects = projects(3);
+        ProjectsFileIO.serializeToFile(file(), projects);
+        assertEquals(stored(projects), stored(ProjectsFileIO.loadFromFile(file())));
+    }
+}
@@ -0,0 +1,181 @@
+package se.kth.saeedvan.taskmanager.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import se.kth.saeedvan.taskmanager.model.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static se.kth.saeedvan.taskmanager.io.StoredFields.stored;
+
+class ProjectsJournalTest {
+    private static final long NEVER = 3_600_000;
+
+    @TempDir
+    Path dir;
+
+    private File journalFile() {
+        return dir.resolve("projects.journal").toFile();
+    }
+
+    private File snapshotFile() {
+        return dir.resolve("projects.dat").toFile();
+    }
+
+    private ProjectsJournal open(Supplier<List<Project>> projects) throws IOException {
+        return new ProjectsJournal(journalFile(), snapshotFile(), projects, NEVER, Long.MAX_VALUE, NEVER);
+    }
+
+    private static ProjectsManager manager(int projectCount, int taskCount) {
+        ProjectsManager manager = new ProjectsManager();
+        for (int i = 0; i < projectCount; i++) {
+            Project project = manager.addProject("Project " + i, "description " + i);
+            for (int j = 0; j < taskCount; j++) {
+                project.addTask("task " + j, TaskPrio.values()[j % TaskPrio.values().length]);
+            }
+        }
+        return manager;
+    }
+
+    @Test
+    void tornRecordAtTheEndIsRemoved() throws IOException {
+        ProjectsManager manager = new ProjectsManager();
+        try (ProjectsJournal journal = open(manager::getProjects)) {
+            manager.addListener(journal);
+            Project project = manager.addProject("Project", "description");
+            project.addTask("first", TaskPrio.HIGH);
+            project.addTask("second", TaskPrio.LOW);
+        }
+        long complete = journalFile().length();
+        // a record that claims 100 bytes, of which only a few were written before the application stopped
+        try (OutputStream out = new FileOutputStream(journalFile(), true)) {
+            out.write(new byte[] {0, 0, 0, 100, 1, 2, 3, 4, 3, 0, 0});
+        }
+
+        assertEquals(stored(manager.getProjects()), stored(ProjectsJournal.replay(journalFile(), List.of())));
+
+        Project project = manager.getProjects().getFirst();
+        try (ProjectsJournal journal = open(manager::getProjects)) {
+            assertEquals(complete, journalFile().length());
+            manager.addListener(journal);
+            project.addTask("third", TaskPrio.MEDIUM);
+        }
+        // the record appended after reopening is not hidden behind the torn one
+        List<Project> replayed = ProjectsJournal.replay(journalFile(), List.of());
+        assertEquals(stored(manager.getProjects()), stored(replayed));
+        assertEquals(3, replayed.getFirst().getTaskCount());
+    }
+
+    @Test
+    void recordsAreReplayedInOrder() throws IOException {
+        LocalDate created = LocalDate.of(2024, 1, 2);
+        try (ProjectsJournal journal = open(List::of)) {
+            Project first = Project.restore("First", "added, then removed", 7, created, 0);
+            journal.projectAdded(first);
+            journal.taskAdded(first, first.restoreTask(0, "lost", TaskPrio.LOW, null, null, null));
+            journal.projectRemoved(first);
+
+            Project again = Project.restore("Again", "added again with the same id", 7, created, 0);
+            journal.projectAdded(again);
+            Task task = again.restoreTask(3, "kept", TaskPrio.HIGH, null, null, null);
+            journal.taskAdded(again, task);
+            Task removed = again.restoreTask(4, "removed", TaskPrio.LOW, null, null, null);
+            journal.taskAdded(again, removed);
+            journal.taskRemoved(again, removed);
+            journal.taskUpdated(again, again.restoreTask(3, "updated", TaskPrio.HIGH, TaskState.DONE, "ann", created));
+            // a task removed and put again comes back
+            journal.taskRemoved(again, removed);
+            journal.taskAdded(again, again.restoreTask(4, "back", TaskPrio.MEDIUM, null, null, null));
+        }
+
+        List<Project> replayed = ProjectsJournal.replay(journalFile(), List.of());
+        assertEquals(1, replayed.size());
+        Project project = replayed.getFirst();
+        assertEquals(7, project.getId());
+        assertEquals("Again", project.getTitle());
+        assertNull(project.getTaskById(0));
+        Task updated = project.getTaskById(3);
+        assertEquals("updated", updated.getDescription());
+        assertEquals(TaskState.DONE, updated.getState());
+        assertEquals("ann", updated.getTakenBy());
+        assertEquals(created, updated.getLastUpdate());
+        assertEquals("back", project.getTaskById(4).getDescription());
+        assertEquals(2, project.getTaskCount());
+    }
+
+    @Test
+    void replayOnTheSnapshotChangesOnlyTheProjectsInTheJournal() throws Exception {
+        ProjectsManager manager = manager(3, 2);
+        ProjectsFileIO.saveToFile(snapshotFile(), manager.getProjects());
+        try (ProjectsJournal journal = open(manager::getProjects)) {
+            manager.addListener(journal);
+            List<Project> projects = manager.getProjects();
+            projects.get(0).addTask("added", TaskPrio.HIGH);
+            manager.removeProject(projects.get(1));
+            manager.addProject("New", "added after the snapshot").addTask("new task", TaskPrio.LOW);
+        }
+
+        List<Project> replayed = ProjectsJournal.replay(journalFile(), ProjectsFileIO.loadFromFile(snapshotFile()));
+        assertEquals(stored(manager.getProjects()), stored(replayed));
+    }
+
+    @Test
+    void checkpointEmptiesTheJournal() throws Exception {
+        ProjectsManager manager = manager(20, 5);
+        try (ProjectsJournal journal = open(manager::getProjects)) {
+            journal.compact();
+            long saved = snapshotFile().length();
+            manager.addListener(journal);
+            List<Project> projects = manager.getProjects();
+            projects.get(3).addTask("added", TaskPrio.HIGH);
+            projects.get(4).getTasks().getFirst().setState(TaskState.IN_PROGRESS);
+            manager.removeProject(projects.get(5));
+            assertTrue(journalFile().length() > 0);
+
+            journal.checkpoint();
+            assertEquals(0, journalFile().length());
+            // only the changed projects were appended
+            assertTrue(snapshotFile().length() < 2 * saved);
+            assertEquals(stored(manager.getProjects()), stored(ProjectsFileIO.loadFromFile(snapshotFile())));
+        }
+    }
+
+    @Test
+    void checkpointKeepsRecordsAppendedWhileItRuns() throws Exception {
+        ProjectsManager manager = manager(5, 3);
+        ProjectsFileIO.saveToFile(snapshotFile(), manager.getProjects());
+        boolean[] changedMeanwhile = {false};
+        // the checkpoint asks for the projects after it has decided which records it removes
+        Supplier<List<Project>> projects = () -> {
+            if (!changedMeanwhile[0]) {
+                changedMeanwhile[0] = true;
+                manager.getProjects().get(2).addTask("meanwhile", TaskPrio.LOW);
+            }
+            return manager.getProjects();
+        };
+        try (ProjectsJournal journal = open(projects)) {
+            manager.addListener(journal);
+            manager.getProjects().get(1).addTask("before", TaskPrio.HIGH);
+
+            journal.checkpoint();
+            // only the record appended meanwhile is left
+            List<Project> unchanged = ProjectsJournal.replay(journalFile(), manager(5, 3).getProjects());
+            assertEquals(3, unchanged.get(1).getTaskCount());
+            assertEquals("meanwhile", unchanged.get(2).getTasks().getLast().getDescription());
+            List<Project> replayed = ProjectsJournal.replay(journalFile(), ProjectsFileIO.loadFromFile(snapshotFile()));
+            assertEquals(stored(manager.getProjects()), stored(replayed));
+
+            journal.checkpoint();
+            assertEquals(0, journalFile().length());
+            assertEquals(stored(manager.getProjects()), stored(ProjectsFileIO.loadFromFile(snapshotFile())));
+        }
+    }
+}
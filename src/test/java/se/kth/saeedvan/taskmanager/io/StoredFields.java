@@ -0,0 +1,27 @@
+package se.kth.saeedvan.taskmanager.io;
+
+import se.kth.saeedvan.taskmanager.model.Project;
+import se.kth.saeedvan.taskmanager.model.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// the fields of projects that are written to the data file and the journal, for comparing projects read back
+final class StoredFields {
+
+    private StoredFields() {
+    }
+
+    static List<String> stored(List<Project> projects) {
+        List<String> lines = new ArrayList<>();
+        for (Project p : projects) {
+            lines.add(p.getId() + " " + p.getTitle() + " " + p.getDescription() + " " + p.getCreated()
+                    + " " + p.getNextTaskId());
+            for (Task t : p.getTasks()) {
+                lines.add("  " + t.getId() + " " + t.getDescription() + " " + t.getPrio() + " " + t.getState()
+                        + " " + t.getTakenBy() + " " + t.getLastUpdate());
+            }
+        }
+        return lines;
+    }
+}
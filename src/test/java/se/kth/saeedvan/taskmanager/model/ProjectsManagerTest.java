@@ -0,0 +1,93 @@
+package se.kth.saeedvan.taskmanager.model;
+
+import org.junit.jupiter.api.Test;
+import se.kth.saeedvan.taskmanager.model.exceptions.TitleNotUniqueException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProjectsManagerTest {
+
+    private static Project project(int id, String title) {
+        return Project.restore(title, "description", id, LocalDate.of(2024, 1, 1), 0);
+    }
+
+    // counts the tasks added, to see which projects the listener is added to
+    private static final class AddedTasks implements IProjectListener {
+        int count;
+
+        @Override
+        public void taskAdded(Project project, Task task) {
+            count++;
+        }
+    }
+
+    @Test
+    void setProjectsReplacesTheProjectsAndMovesTheListeners() {
+        ProjectsManager manager = new ProjectsManager();
+        Project old = manager.addProject("Old", "replaced");
+        AddedTasks listener = new AddedTasks();
+        manager.addListener(listener);
+
+        List<Project> incoming = List.of(project(4, "First"), project(9, "Second"));
+        manager.setProjects(incoming);
+        assertEquals(incoming, manager.getProjects());
+        assertEquals(10, manager.getNextProjectId());
+        assertTrue(manager.isTitleUnique("old"));
+        assertEquals(List.of(incoming.get(1)), manager.findProjects("seco"));
+
+        old.addTask("not heard", TaskPrio.LOW);
+        manager.getProjectById(4).addTask("heard", TaskPrio.LOW);
+        assertEquals(1, listener.count);
+    }
+
+    @Test
+    void failedSetProjectsLeavesTheManagerUnchanged() {
+        ProjectsManager manager = new ProjectsManager();
+        manager.addProject("Kept", "before");
+        manager.addProject("Also kept", "before");
+        AddedTasks listener = new AddedTasks();
+        manager.addListener(listener);
+        List<Project> before = manager.getProjects();
+
+        List<Project> sameTitle = List.of(project(1, "New"), project(2, "Other"), project(3, "NEW"));
+        assertThrows(TitleNotUniqueException.class, () -> manager.setProjects(sameTitle));
+        List<Project> sameId = List.of(project(5, "New"), project(5, "Other"));
+        assertThrows(IllegalArgumentException.class, () -> manager.setProjects(sameId));
+
+        assertEquals(before, manager.getProjects());
+        assertEquals(3, manager.getNextProjectId());
+        assertFalse(manager.isTitleUnique("kept"));
+        assertTrue(manager.isTitleUnique("new"));
+        assertEquals(List.of(before.get(0), before.get(1)), manager.findProjects("kept"));
+        List<Project> all = new ArrayList<>(sameTitle);
+        all.addAll(sameId);
+        for (Project p : all) {
+            p.addTask("not heard", TaskPrio.LOW);
+        }
+        before.get(0).addTask("heard", TaskPrio.LOW);
+        assertEquals(1, listener.count);
+    }
+
+    @Test
+    void foundTasksCanBeLookedUpByEqualProjects() {
+        ProjectsManager manager = new ProjectsManager();
+        manager.addProject("First", "found").addTask("match", TaskPrio.HIGH);
+        manager.addProject("Second", "found").addTask("match too", TaskPrio.HIGH);
+        manager.addProject("Third", "not found").addTask("other", TaskPrio.HIGH);
+
+        Map<Project, List<Task>> found = new HashMap<>(manager.searchTasks("match*"));
+        assertEquals(2, found.size());
+        // an equal project, as restored from a file, finds the same tasks
+        Project restored = project(1, "First");
+        assertEquals(manager.getProjectById(1), restored);
+        assertEquals(manager.getProjectById(1).hashCode(), restored.hashCode());
+        assertEquals("match", found.get(restored).getFirst().getDescription());
+        assertNull(found.get(project(3, "Third")));
+    }
+}
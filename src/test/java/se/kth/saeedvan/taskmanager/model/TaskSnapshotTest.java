@@ -0,0 +1,130 @@
+package se.kth.saeedvan.taskmanager.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskSnapshotTest {
+
+    private static Task task(int id) {
+        return new Task("task " + id, TaskPrio.LOW, id);
+    }
+
+    // checks the list against the tasks it should hold, by iterator, by position and by id
+    private static void assertHolds(TreeMap<Integer, Task> expected, TaskSnapshot snapshot) {
+        assertEquals(expected.size(), snapshot.size());
+        Iterator<Task> it = snapshot.iterator();
+        int index = 0;
+        for (Task t : expected.values()) {
+            assertTrue(it.hasNext());
+            assertSame(t, it.next(), "iterator at " + index);
+            assertSame(t, snapshot.get(index), "get(" + index + ")");
+            assertSame(t, snapshot.findById(t.getId()), "findById(" + t.getId() + ")");
+            index++;
+        }
+        assertFalse(it.hasNext());
+        assertThrows(NoSuchElementException.class, it::next);
+        assertThrows(IndexOutOfBoundsException.class, () -> snapshot.get(expected.size()));
+        assertThrows(IndexOutOfBoundsException.class, () -> snapshot.get(-1));
+    }
+
+    @Test
+    void emptyList() {
+        TaskSnapshot empty = TaskSnapshot.EMPTY;
+        assertHolds(new TreeMap<>(), empty);
+        assertNull(empty.findById(0));
+        assertSame(empty, empty.without(0));
+        assertHolds(new TreeMap<>(), TaskSnapshot.of(List.of()));
+    }
+
+    @Test
+    void rootGrowsWithTheIds() {
+        // each id needs one more level than the ones before
+        int[] ids = {0, 1, 31, 32, 1023, 1024, 40_000, 1 << 20, 1 << 25, Integer.MAX_VALUE};
+        TreeMap<Integer, Task> expected = new TreeMap<>();
+        TaskSnapshot snapshot = TaskSnapshot.EMPTY;
+        List<TaskSnapshot> snapshots = new ArrayList<>();
+        List<TreeMap<Integer, Task>> contents = new ArrayList<>();
+        for (int id : ids) {
+            Task t = task(id);
+            expected.put(id, t);
+            snapshot = snapshot.with(t);
+            assertHolds(expected, snapshot);
+            snapshots.add(snapshot);
+            contents.add(new TreeMap<>(expected));
+        }
+        // the lists that were handed out are unchanged
+        for (int i = 0; i < snapshots.size(); i++) {
+            assertHolds(contents.get(i), snapshots.get(i));
+        }
+        assertNull(snapshot.findById(2));
+        assertNull(snapshot.findById(-1));
+
+        // removing the tasks in another order than they were added
+        for (int id : new int[] {1024, Integer.MAX_VALUE, 0, 32, 1 << 20}) {
+            expected.remove(id);
+            snapshot = snapshot.without(id);
+            assertHolds(expected, snapshot);
+        }
+        // a list that starts with a large id grows from the same root
+        TaskSnapshot large = TaskSnapshot.EMPTY.with(task(1 << 20)).with(task(3));
+        assertEquals(3, large.get(0).getId());
+        assertEquals(1 << 20, large.get(1).getId());
+    }
+
+    @Test
+    void taskWithTheSameIdIsReplaced() {
+        TaskSnapshot snapshot = TaskSnapshot.EMPTY.with(task(5)).with(task(70));
+        Task replacement = new Task("replacement", TaskPrio.HIGH, 5);
+        TaskSnapshot replaced = snapshot.with(replacement);
+        assertEquals(2, replaced.size());
+        assertSame(replacement, replaced.findById(5));
+        assertSame(replacement, replaced.get(0));
+        assertNotEquals("replacement", snapshot.findById(5).getDescription());
+    }
+
+    @Test
+    void missingTaskIsNotRemoved() {
+        TaskSnapshot snapshot = TaskSnapshot.EMPTY.with(task(5)).with(task(70));
+        assertSame(snapshot, snapshot.without(6));
+        assertSame(snapshot, snapshot.without(1 << 20));
+        assertSame(snapshot, snapshot.without(-1));
+        assertEquals(0, snapshot.without(5).without(70).size());
+    }
+
+    @Test
+    void randomChangesMatchATreeMap() {
+        Random random = new Random(18);
+        TreeMap<Integer, Task> expected = new TreeMap<>();
+        TaskSnapshot snapshot = TaskSnapshot.EMPTY;
+        for (int step = 0; step < 5000; step++) {
+            // mostly small ids as in a project, with some that need a deeper trie
+            int id = switch (random.nextInt(10)) {
+                case 0 -> random.nextInt(Integer.MAX_VALUE);
+                case 1, 2 -> random.nextInt(1 << 15);
+                default -> random.nextInt(300);
+            };
+            if (random.nextInt(3) == 0) {
+                expected.remove(id);
+                snapshot = snapshot.without(id);
+            } else {
+                Task t = task(id);
+                expected.put(id, t);
+                snapshot = snapshot.with(t);
+            }
+            assertEquals(expected.size(), snapshot.size());
+            if (step % 100 == 0)
+                assertHolds(expected, snapshot);
+        }
+        assertHolds(expected, snapshot);
+        // building the list in one pass gives the same list
+        assertHolds(expected, TaskSnapshot.of(expected.values()));
+    }
+}
@@ -0,0 +1,73 @@
+package se.kth.saeedvan.taskmanager.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import se.kth.saeedvan.taskmanager.model.Project;
+import se.kth.saeedvan.taskmanager.model.ProjectsManager;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskServerTest {
+    private ProjectsManager manager;
+    private TaskServer server;
+    private HttpClient client;
+
+    @BeforeEach
+    void start() throws IOException {
+        manager = new ProjectsManager();
+        server = new TaskServer(manager, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 16);
+        server.start();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @AfterEach
+    void stop() {
+        server.close();
+        client.close();
+    }
+
+    private HttpResponse<String> post(String path, String body) throws Exception {
+        URI uri = URI.create("http://localhost:" + server.getAddress().getPort() + path);
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void projectIsAddedWithADescription() throws Exception {
+        HttpResponse<String> response = post("/projects", "{\"title\": \"Server\", \"description\": \"over http\"}");
+        assertEquals(201, response.statusCode());
+        Project project = manager.getProjects().getFirst();
+        assertEquals("Server", project.getTitle());
+        assertEquals("over http", project.getDescription());
+    }
+
+    @Test
+    void missingDescriptionIsEmpty() throws Exception {
+        HttpResponse<String> response = post("/projects", "{\"title\": \"No description\"}");
+        assertEquals(201, response.statusCode());
+        assertTrue(response.body().contains("\"description\":\"\""), response.body());
+        Project project = manager.getProjects().getFirst();
+        assertEquals("", project.getDescription());
+        // as the text interface prints it
+        assertDoesNotThrow(project::toString);
+    }
+
+    @Test
+    void missingTitleIsRejected() throws Exception {
+        HttpResponse<String> response = post("/projects", "{\"description\": \"no title\"}");
+        assertEquals(400, response.statusCode());
+        assertTrue(manager.getProjects().isEmpty());
+    }
+}